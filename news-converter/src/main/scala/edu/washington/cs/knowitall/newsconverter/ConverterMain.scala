@@ -132,32 +132,46 @@ object ConverterMain {
   }
   
   /**
-    * Reads lines from standard input and returns an appropriate list
+    * Reads lines from standard input and returns an appropriate iterator
     * of News objects.
     *
-    * The input must be the lines of a json file in the appropriate format.
+    * The input must be the lines of a json file in the appropriate format,
+    * or of an ndjson file with one news object per line.
     */
-  def getJson: List[NewsData] = {
-    val source = Source.fromInputStream(System.in, "UTF-8")
-    val jsonString = source.getLines.mkString
-    
-    source.close()
-    val json = parse(jsonString)
-    json.extract[List[NewsData]]
+  def getJson: Iterator[NewsData] = {
+    readNews(Source.fromInputStream(System.in, "UTF-8"))
   }
   
   /**
-   * Reads lines from stdin and returns an appropriate list of News
+   * Reads the given file and returns an appropriate iterator of News
    * objects. 
    * 
-   * The lines from stdin must form a json file in the appropriate format. 
+   * The file must be a json file in the appropriate format, or an ndjson
+   * file with one news object per line. 
    */
-  def readJson(file: File): List[NewsData] = {
-    val source = Source.fromFile(file, "UTF-8")
-    val jsonString = source.getLines.mkString
-    source.close()
+  def readJson(file: File): Iterator[NewsData] = {
+    readNews(Source.fromFile(file, "UTF-8"))
+  }
+  
+  /**
+   * Reads the news in source. A json array is parsed in one piece; an
+   * ndjson file is parsed a line at a time as the iterator is consumed,
+   * and the source is closed when it runs out.
+   */
+  def readNews(source: Source): Iterator[NewsData] = {
+    val lines = source.getLines.buffered
+    while (lines.hasNext && lines.head.trim.isEmpty) lines.next()
     
-    val json = parse(jsonString)
-    json.extract[List[NewsData]]
+    if (lines.hasNext && lines.head.trim.startsWith("[")) {
+      val jsonString = lines.mkString
+      source.close()
+      parse(jsonString).extract[List[NewsData]].iterator
+    } else {
+      val news = lines.filter(!_.trim.isEmpty).map(line => parse(line).extract[NewsData])
+      new Iterator[NewsData] {
+        def hasNext = news.hasNext || { source.close(); false }
+        def next() = news.next()
+      }
+    }
   }
 }
@@ -0,0 +1,49 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Descriptions per second through ArticleTextCleaner.clean, per publisher.
+ * Reuters, New York Times and Bloomberg aren't in GooglePublishers.csv, so
+ * they only go through the general rules.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CleanerBenchmark {
+
+    @Param({ "PCWorld", "BBC News", "The Associated Press", "USA TODAY",
+            "Sydney Morning Herald", "CBS News", "Telegraph.co.uk",
+            "The Verge", "Yahoo! Sports", "Reuters", "New York Times",
+            "Bloomberg" })
+    public String publisher;
+
+    private ArticleTextCleaner cleaner;
+    private String[] descriptions;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        cleaner = new ArticleTextCleaner();
+        List<String> texts = Fixtures.googleDescriptions(publisher);
+        descriptions = texts.toArray(new String[texts.size()]);
+    }
+
+    @Benchmark
+    public String clean() {
+        String desc = descriptions[next];
+        next = (next + 1) % descriptions.length;
+        return cleaner.clean(desc, publisher);
+    }
+}
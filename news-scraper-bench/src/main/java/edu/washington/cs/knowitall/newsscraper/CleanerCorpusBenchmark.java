@@ -0,0 +1,40 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Descriptions per second through ArticleTextCleaner.clean over every
+ * Google fixture item, whatever its publisher.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CleanerCorpusBenchmark {
+
+    private ArticleTextCleaner cleaner;
+    private List<String[]> corpus;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        cleaner = new ArticleTextCleaner();
+        corpus = Fixtures.googleDescriptions();
+    }
+
+    @Benchmark
+    public String clean() {
+        String[] desc = corpus.get(next);
+        next = (next + 1) % corpus.size();
+        return cleaner.clean(desc[1], desc[0]);
+    }
+}
@@ -0,0 +1,85 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import edu.washington.cs.knowitall.extractor.ReVerbExtractor;
+import edu.washington.cs.knowitall.extractor.conf.ReVerbOpenNlpConfFunction;
+import edu.washington.cs.knowitall.nlp.ChunkedSentence;
+import edu.washington.cs.knowitall.nlp.OpenNlpSentenceChunker;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedBinaryExtraction;
+
+/**
+ * Sentences per second through extraction: chunking, as reverbExtract does
+ * for every sentence of an article, then ReVerb extraction and confidence,
+ * as ExtractedNewsData does when it is written out. The sentences are the
+ * distinct ones of the extracted_data fixture.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ExtractionBenchmark {
+
+    private OpenNlpSentenceChunker chunker;
+    private ReVerbExtractor reverb;
+    private ReVerbOpenNlpConfFunction confFunc;
+    private String[] sentences;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        chunker = new OpenNlpSentenceChunker();
+        ExtractionContext context = new ExtractionContext();
+        reverb = context.getExtractor();
+        confFunc = context.getConfFunction();
+
+        List<String> sents = new ArrayList<String>();
+        for (File file : Fixtures.files(Fixtures.extractedDataDir())) {
+            Reader in = new InputStreamReader(new FileInputStream(file),
+                    Fixtures.ENCODE);
+            JsonObject articles = new JsonParser().parse(in).getAsJsonObject();
+            in.close();
+            for (Map.Entry<String, JsonElement> article : articles.entrySet()) {
+                for (JsonElement extraction : article.getValue()
+                        .getAsJsonObject().getAsJsonArray("extractions")) {
+                    String sent = extraction.getAsJsonObject().get("sent")
+                            .getAsString();
+                    if (!sents.contains(sent))
+                        sents.add(sent);
+                }
+            }
+        }
+        sentences = sents.toArray(new String[sents.size()]);
+    }
+
+    @Benchmark
+    public double extract() {
+        String sent = sentences[next];
+        next = (next + 1) % sentences.length;
+        ChunkedSentence cs = chunker.chunkSentence(sent);
+        double conf = 0;
+        for (ChunkedBinaryExtraction cbe : reverb.extract(cs)) {
+            conf += confFunc.getConf(cbe);
+        }
+        return conf;
+    }
+}
@@ -0,0 +1,98 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import edu.washington.cs.knowitall.nlp.OpenNlpSentenceChunker;
+
+/**
+ * Articles per second through ExtractedNewsData.toJsonString: with a fresh
+ * ExtractionContext per article, which builds its own ReVerbExtractor and
+ * ReVerbOpenNlpConfFunction the way every article did before the context,
+ * against one context shared by the whole run. The articles are those of
+ * the extracted_data fixture, chunked once in setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ExtractionSetupBenchmark {
+
+    private ExtractedNewsData[] articles;
+    private ExtractionContext sharedContext;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        OpenNlpSentenceChunker chunker = new OpenNlpSentenceChunker();
+        List<ExtractedNewsData> data = new ArrayList<ExtractedNewsData>();
+        for (File file : Fixtures.files(Fixtures.extractedDataDir())) {
+            Reader in = new InputStreamReader(new FileInputStream(file),
+                    Fixtures.ENCODE);
+            JsonObject json = new JsonParser().parse(in).getAsJsonObject();
+            in.close();
+            for (Map.Entry<String, JsonElement> entry : json.entrySet()) {
+                JsonObject article = entry.getValue().getAsJsonObject();
+                ExtractedNewsData news = new ExtractedNewsData(
+                        get(article, "category"), get(article, "subCategory"),
+                        get(article, "title"), get(article, "date"));
+                news.content = get(article, "content");
+                news.url = get(article, "url");
+                news.source = get(article, "source");
+                for (JsonElement extraction : article
+                        .getAsJsonArray("extractions")) {
+                    String sent = extraction.getAsJsonObject().get("sent")
+                            .getAsString();
+                    if (!news.extractions.containsKey(sent))
+                        news.extractions.put(sent, chunker.chunkSentence(sent));
+                }
+                data.add(news);
+            }
+        }
+        articles = data.toArray(new ExtractedNewsData[data.size()]);
+
+        // built before measuring, as the first article of a run would
+        sharedContext = new ExtractionContext();
+        sharedContext.getExtractor();
+        sharedContext.getConfFunction();
+    }
+
+    @Benchmark
+    public int freshContext() {
+        return nextArticle().toJsonString(new ExtractionContext()).length();
+    }
+
+    @Benchmark
+    public int sharedContext() {
+        return nextArticle().toJsonString(sharedContext).length();
+    }
+
+    private ExtractedNewsData nextArticle() {
+        ExtractedNewsData news = articles[next];
+        next = (next + 1) % articles.length;
+        return news;
+    }
+
+    private static String get(JsonObject article, String field) {
+        JsonElement value = article.get(field);
+        return value == null ? "" : value.getAsString();
+    }
+}
@@ -0,0 +1,115 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+
+/**
+ * Locates the checked-in sample data the benchmarks run on. The fixtures
+ * live in news-scraper-bench/fixtures; the bench.fixtures system property
+ * points somewhere else.
+ */
+final class Fixtures {
+
+    static final String ENCODE = "UTF-8";
+
+    private Fixtures() {
+    }
+
+    static File root() {
+        return new File(System.getProperty("bench.fixtures", "fixtures"));
+    }
+
+    /** @return the raw_data directory of the given scraper, with a slash. */
+    static String rawDataDir(String scraper) {
+        return checkDir(new File(root(), "raw_data/" + scraper)).getPath()
+                + "/";
+    }
+
+    /** @return the directory of extracted .revnews files, with a slash. */
+    static String extractedDataDir() {
+        return checkDir(new File(root(), "extracted_data")).getPath() + "/";
+    }
+
+    /** @return the files of dir, sorted by name. */
+    static List<File> files(String dir) {
+        File[] files = new File(dir).listFiles();
+        Arrays.sort(files);
+        return Arrays.asList(files);
+    }
+
+    /** @return a scraper built from its bundled config. */
+    static RssScraper scraper(String name) {
+        Calendar cal = Calendar.getInstance();
+        if (name.equals("yahoo"))
+            return new YahooRssScraper(cal, new Config(
+                    NewsScraperMain.class.getResource("YahooRssConfig")));
+        if (name.equals("google"))
+            return new GoogleRssScraper(cal, new Config(
+                    NewsScraperMain.class.getResource("GoogleRssConfig")));
+        throw new IllegalArgumentException("Unknown scraper: " + name);
+    }
+
+    /** @return the number of items in the raw files of dir. */
+    static int countItems(String dir) throws IOException {
+        int count = 0;
+        for (File file : files(dir)) {
+            RssItemReader reader = new RssItemReader(file, ENCODE);
+            while (reader.nextItem() != null)
+                count++;
+            reader.close();
+        }
+        return count;
+    }
+
+    /**
+     * @return publisher and description text of every Google raw item,
+     *         found the way GoogleRssScraper.processFile does.
+     */
+    static List<String[]> googleDescriptions() throws IOException {
+        List<String[]> descriptions = new ArrayList<String[]>();
+        for (File file : files(rawDataDir("google"))) {
+            RssItemReader reader = new RssItemReader(file, ENCODE);
+            Element item;
+            while ((item = reader.nextItem()) != null) {
+                Element desc = item.getElementsByTag("description").first();
+                desc = Jsoup.parse(StringEscapeUtils.unescapeHtml4(
+                        desc.toString()));
+                Element lh = desc.getElementsByClass("lh").first();
+                String publisher = lh.getElementsByTag("font").get(1).text();
+                String text = lh.getElementsByTag("font").get(2).text();
+                descriptions.add(new String[] { publisher, text });
+            }
+            reader.close();
+        }
+        return descriptions;
+    }
+
+    /** @return the Google description texts from the given publisher. */
+    static List<String> googleDescriptions(String publisher)
+            throws IOException {
+        List<String> descriptions = new ArrayList<String>();
+        for (String[] desc : googleDescriptions()) {
+            if (desc[0].equals(publisher))
+                descriptions.add(desc[1]);
+        }
+        if (descriptions.isEmpty())
+            throw new IllegalStateException("No fixture items from "
+                    + publisher + ".");
+        return descriptions;
+    }
+
+    private static File checkDir(File dir) {
+        if (!dir.isDirectory())
+            throw new IllegalStateException("Missing fixtures: " + dir
+                    + "; run from news-scraper-bench or set bench.fixtures.");
+        return dir;
+    }
+}
@@ -0,0 +1,98 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Calendar;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Records per second through ExtractedDataFormatter over the
+ * extracted_data fixtures, which are keyed by id the way formatFile reads
+ * them. One invocation formats every file with no date, confidence or
+ * category limit; the records counter reports the extractions read per
+ * second. The output and its manifest are deleted before every invocation,
+ * or the formatter would find them up to date and skip the work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FormatterBenchmark {
+
+    private Config config;
+    private String[] dirs;
+    private File targetDir;
+    private int recordsPerRun;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Records {
+        public long records;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            records = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        config = new Config(
+                NewsScraperMain.class.getResource("YahooRssConfig"));
+        targetDir = File.createTempFile("formatted", "");
+        targetDir.delete();
+        targetDir.mkdirs();
+        dirs = new String[] { Fixtures.extractedDataDir(),
+                targetDir.getPath() };
+
+        for (File file : Fixtures.files(Fixtures.extractedDataDir())) {
+            Reader in = new InputStreamReader(new FileInputStream(file),
+                    Fixtures.ENCODE);
+            JsonObject articles = new JsonParser().parse(in).getAsJsonObject();
+            in.close();
+            for (Map.Entry<String, JsonElement> article : articles.entrySet()) {
+                recordsPerRun += article.getValue().getAsJsonObject()
+                        .getAsJsonArray("extractions").size();
+            }
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void clearOutput() {
+        for (File file : targetDir.listFiles())
+            file.delete();
+    }
+
+    @TearDown
+    public void tearDown() {
+        clearOutput();
+        targetDir.delete();
+    }
+
+    @Benchmark
+    public void format(Records counter) {
+        // the formatter remembers titles, so each run needs a new one
+        ExtractedDataFormatter formatter = new ExtractedDataFormatter(
+                Calendar.getInstance(), config);
+        formatter.format(dirs, null, -1, null, false);
+        counter.records += recordsPerRun;
+    }
+}
@@ -0,0 +1,62 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Items per second through RssScraper.processHtml over the raw_data
+ * fixtures of each scraper. One invocation processes the whole directory;
+ * the items counter reports the raw items read per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ProcessHtmlBenchmark {
+
+    @Param({ "yahoo", "google" })
+    public String scraper;
+
+    @Param({ "1" })
+    public int threads;
+
+    private RssScraper rs;
+    private String dir;
+    private int itemsPerRun;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Items {
+        public long items;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            items = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        rs = Fixtures.scraper(scraper);
+        rs.setProcessingThreads(threads);
+        dir = Fixtures.rawDataDir(scraper);
+        itemsPerRun = Fixtures.countItems(dir);
+    }
+
+    @Benchmark
+    public int processHtml(Items counter) {
+        rs.processHtml(dir, true);
+        counter.items += itemsPerRun;
+        return rs.dataMap.size();
+    }
+}
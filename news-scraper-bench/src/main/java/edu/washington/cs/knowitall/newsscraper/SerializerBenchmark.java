@@ -0,0 +1,121 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Articles per second through serialization: the old way, finding the
+ * fields of NewsData with reflection and escaping only quotes, against
+ * NewsData.writeJson. Both write into one reused StringBuilder, the way
+ * RssScraper.outputDatabase streams articles. The articles are those of
+ * the extracted_data fixture.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SerializerBenchmark {
+
+    private NewsData[] articles;
+    private StringBuilder sb;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<NewsData> data = new ArrayList<NewsData>();
+        for (File file : Fixtures.files(Fixtures.extractedDataDir())) {
+            Reader in = new InputStreamReader(new FileInputStream(file),
+                    Fixtures.ENCODE);
+            JsonObject json = new JsonParser().parse(in).getAsJsonObject();
+            in.close();
+            for (Map.Entry<String, JsonElement> article : json.entrySet())
+                data.add(toNewsData(article.getValue().getAsJsonObject()));
+        }
+        articles = data.toArray(new NewsData[data.size()]);
+        sb = new StringBuilder();
+    }
+
+    @Benchmark
+    public int reflective() {
+        sb.setLength(0);
+        sb.append('{').append(reflectiveFieldsJson(nextArticle())).append('}');
+        return sb.length();
+    }
+
+    @Benchmark
+    public int writeJson() throws IOException {
+        sb.setLength(0);
+        nextArticle().writeJson(sb);
+        return sb.length();
+    }
+
+    private NewsData nextArticle() {
+        NewsData news = articles[next];
+        next = (next + 1) % articles.length;
+        return news;
+    }
+
+    private static NewsData toNewsData(JsonObject article) {
+        NewsData news = new NewsData(get(article, "category"),
+                get(article, "subCategory"), get(article, "title"),
+                get(article, "date"));
+        news.imgAlt = get(article, "imgAlt");
+        news.imgTitle = get(article, "imgTitle");
+        news.content = get(article, "content");
+        news.url = get(article, "url");
+        news.source = get(article, "source");
+        news.imgUrl = get(article, "imgUrl");
+        return news;
+    }
+
+    private static String get(JsonObject article, String field) {
+        JsonElement value = article.get(field);
+        return value == null ? "" : value.getAsString();
+    }
+
+    /* The serialization NewsData used before writeJson. */
+    private static String reflectiveFieldsJson(NewsData news) {
+        StringBuilder sb = new StringBuilder();
+        Field[] fields = news.getClass().getFields();
+        String seperator = ", ";
+
+        for (Field field : fields) {
+            String fieldName = field.getName();
+            if (!fieldName.equals("extractions")) {
+                sb.append("\"" + field.getName() + "\"");
+                sb.append(":");
+                String fieldVal = null;
+                try {
+                    fieldVal = field.get(news).toString();
+                } catch (IllegalAccessException e) {
+                    e.printStackTrace();
+                } catch (NullPointerException e) {
+                    fieldVal = "";
+                }
+                sb.append("\"" + fieldVal.replace("\"", "\\\"") + "\"");
+                sb.append(seperator);
+            }
+        }
+        sb.delete(sb.length() - seperator.length(), sb.length());
+        return sb.toString();
+    }
+}
@@ -1,22 +1,44 @@
 package edu.washington.cs.knowitall.newsscraper;
 
-import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.URL;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import edu.washington.cs.knowitall.newsscraper.CleanupRule.Guard;
+import edu.washington.cs.knowitall.newsscraper.TokenPattern.Element;
+
+import static edu.washington.cs.knowitall.newsscraper.CleanupRule.both;
+import static edu.washington.cs.knowitall.newsscraper.CleanupRule.contains;
+import static edu.washington.cs.knowitall.newsscraper.CleanupRule.containsAny;
+import static edu.washington.cs.knowitall.newsscraper.CleanupRule.startsWithAny;
+import static edu.washington.cs.knowitall.newsscraper.CleanupRule.startsWithIgnoreCase;
+import static edu.washington.cs.knowitall.newsscraper.TokenPattern.atStart;
+import static edu.washington.cs.knowitall.newsscraper.TokenPattern.dash;
+import static edu.washington.cs.knowitall.newsscraper.TokenPattern.digits;
+import static edu.washington.cs.knowitall.newsscraper.TokenPattern.either;
+import static edu.washington.cs.knowitall.newsscraper.TokenPattern.literal;
+import static edu.washington.cs.knowitall.newsscraper.TokenPattern.oneOf;
+import static edu.washington.cs.knowitall.newsscraper.TokenPattern.optional;
+import static edu.washington.cs.knowitall.newsscraper.TokenPattern.run;
+import static edu.washington.cs.knowitall.newsscraper.TokenPattern.sequence;
+import static edu.washington.cs.knowitall.newsscraper.TokenPattern.spaced;
+import static edu.washington.cs.knowitall.newsscraper.TokenPattern.throughLast;
+import static edu.washington.cs.knowitall.newsscraper.TokenPattern.throughLastAfter;
+import static edu.washington.cs.knowitall.newsscraper.TokenPattern.token;
+import static edu.washington.cs.knowitall.newsscraper.TokenPattern.words;
+
 public class ArticleTextCleaner {
 
     protected Logger logger;
 
-    private final Map<String, String> publishers;
+    private final PublisherRules publishers;
+    private final Pattern LOWERCASE_START = Pattern.compile("^[a-z].*");
     private final String GARBAGE_TAIL = "...";
     private final String MONTH = "(JANUARY|FEBRUARY|MARCH|APRIL|MAY|JUNE|JULY|AUGUST|SEPTEMBER|OCTOBER|NOVEMBER|DECEMBER|January|February|March|April|May|June|July|August|September|October|November|December|JAN|FEB|MAR|APR|MAY|JUN|JUL|AUG|SEP|OCT|NOV|DEC|Jan|Feb|Mar|Apr|May|Jun|Jul|Aug|Sep|Oct|Nov|Dec)";
     private final String DAY = "(SUNDAY|MONDAY|TUESDAY|WEDNESDAY|THURSDAY|FRIDAY|SATURDAY|SUN|MON|TUE|WED|THU|FRI|SAT|Sunday|Monday|Tuesday|Wednesday|Thursday|Friday|Saturday|Sun|Mon|Tue|Wed|Thu|Fri|Sat)";
@@ -26,11 +48,59 @@ public class ArticleTextCleaner {
     private final String LOWERCASE_NAME = "[A-Z]([A-Z])?[a-z'à-ÿ]*(-[A-Z][a-z'à-ÿ]+)? (de )?(del )?([A-Z](\\.)? )?(Mac)?(D')?(Mc)?(O')?[A-Z][a-z'à-ÿ]+(-[A-Z][a-z'à-ÿ]+)?( (Jr|Sr)(\\.)?)?";
     private final String UPPERCASE_NAME = "[A-ZÀ-Ý]+(-[A-ZÀ-Ý]+)? ([A-Z](\\.)? )?(Mc)?(O')?[A-ZÀ-Ý]+(-[A-ZÀ-Ý]+)?( (J[Rr]|S[Rr])(\\.)?)?";
     private final String DASH = "(- -|--|-+|―+|—+|–+|‒+|‑+|‐+|•+|\\|)";
+    // a DASH needs one of these
+    private final String DASH_CHARS = "-―—–‒‑‐•|";
+    // first letters of DAY and MONTH
+    private final String DAY_INITIALS = "SMTWF";
+    private final String MONTH_INITIALS = "JFMASOND";
+    private final String UPPERCASE = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    private final String LOWERCASE = "abcdefghijklmnopqrstuvwxyz";
+    private final String DIGITS = "0123456789";
+    // fixGeneralContent gives up on texts that still change after this
+    private final int MAX_GENERAL_PASSES = 16;
+
+    private final List<CleanupRule> generalRules;
+    private final TokenTrie months = new TokenTrie(MONTH);
+    private final TokenTrie days = new TokenTrie(DAY);
+    private final TokenTrie timeZones = new TokenTrie(TIME_ZONE);
 
 
     protected ArticleTextCleaner() {
         logger = LoggerFactory.getLogger(this.getClass());
-        publishers = fillPublishers();
+        publishers = new PublisherRules(
+                NewsScraperMain.class.getResource("GooglePublishers.csv"));
+        generalRules = makeGeneralRules();
+    }
+
+    /**
+     * A cleaner whose publisher rules are read from publishersFile, and
+     * reloaded whenever that file changes.
+     * @param publishersFile a tab separated publisher/regex file laid out
+     *                       like GooglePublishers.csv.
+     * @throws IOException if the file's location is malformed.
+     */
+    protected ArticleTextCleaner(String publishersFile) throws IOException {
+        logger = LoggerFactory.getLogger(this.getClass());
+        publishers = new PublisherRules(new File(publishersFile));
+        generalRules = makeGeneralRules();
+    }
+
+    /**
+     * Reads the publisher rules again.
+     * @return false if they couldn't be loaded and the old ones are kept.
+     */
+    public boolean reloadPublishers() {
+        return publishers.reload();
+    }
+
+    /** @return the rules of fixGeneralContent, in the order they run. */
+    List<CleanupRule> getGeneralRules() {
+        return generalRules;
+    }
+
+    /** @return the number of publisher regexes compiled so far. */
+    public int getPublisherCompileCount() {
+        return publishers.getCompileCount();
     }
 
     /* Given the text of an article preview, removes "chrome" such as author,
@@ -44,7 +114,7 @@ public class ArticleTextCleaner {
         descText = clean(descText, publisher, true);
 
         // if cleaned text starts with lowercase, scrap the first sentence
-        if (Pattern.matches("^[a-z].*", descText) && !descText.startsWith("iP")) {
+        if (LOWERCASE_START.matcher(descText).matches() && !descText.startsWith("iP")) {
             int endOfFirstSentence = Math.max(descText.indexOf(". "),
                     Math.max(descText.indexOf("? "), descText.indexOf("! ")));
             if (endOfFirstSentence == -1) return "";
@@ -61,16 +131,16 @@ public class ArticleTextCleaner {
     protected String clean(String descText, String publisher, boolean first) {
         if (descText.equals("")) return "";
 
-        if (!publishers.containsKey(publisher)) {
+        Pattern p = publishers.get(publisher);
+        if (p == null) {
             // logger.info("Publisher not found: " + publisher);
             return fixGeneralContent(descText);
         }
-        Pattern p = Pattern.compile(publishers.get(publisher));
         Matcher m = p.matcher(descText);
         boolean found = m.find();
 
         if (found) {
-            return clean(descText.replaceFirst(publishers.get(publisher), ""), publisher, false);
+            return clean(descText.substring(0, m.start()) + descText.substring(m.end()), publisher, false);
         } else if (first) {
             // logger.info("Pattern not found for publisher: " + publisher + " for text: " + descText + ".");
         }
@@ -79,91 +149,132 @@ public class ArticleTextCleaner {
     }
 
     /*
-     * Fixes problems that aren't publisher-specific.
+     * Fixes problems that aren't publisher-specific. Runs the general rules
+     * over the text until it stops changing, or for MAX_GENERAL_PASSES.
      */
     private String fixGeneralContent(String descText) {
-        if (descText.equals("")) return "";
+        for (int pass = 0; pass < MAX_GENERAL_PASSES; pass++) {
+            if (descText.equals("")) return "";
 
-        String original = descText;
+            String original = descText;
 
-        descText = descText.replace("\\\\", "\\");
+            descText = descText.replace("\\\\", "\\");
+
+            if (descText.endsWith(GARBAGE_TAIL)) {
+                int endOfLastSentence = Math.max(descText.lastIndexOf(". "),
+                        Math.max(descText.lastIndexOf("? "),
+                        Math.max(descText.lastIndexOf("! "),
+                        Math.max(descText.lastIndexOf("• "),
+                                 descText.lastIndexOf("* ")))));
+                descText = descText.substring(0, endOfLastSentence + 1);
+            }
 
-        if (descText.endsWith(GARBAGE_TAIL)) {
-            int endOfLastSentence = Math.max(descText.lastIndexOf(". "),
-                    Math.max(descText.lastIndexOf("? "),
-                    Math.max(descText.lastIndexOf("! "),
-                    Math.max(descText.lastIndexOf("• "),
-                             descText.lastIndexOf("* ")))));
-            descText = descText.substring(0, endOfLastSentence + 1);
+            for (CleanupRule rule : generalRules) {
+                descText = rule.apply(descText);
+            }
+
+            if (original.equals(descText)) return descText;
         }
 
+        logger.warn("fixGeneralContent(): Still changing after {} passes: {}",
+                MAX_GENERAL_PASSES, descText);
+        return descText;
+    }
+
+    /*
+     * Returns the rules of fixGeneralContent, in the order they are applied.
+     * Every rule removes the first match of its regex; the guards only skip
+     * texts the regex can't match. The date, time, source and city rules
+     * that blow up on long texts come with a TokenPattern that is used
+     * instead of the regex, spelled out element by element after it.
+     */
+    private List<CleanupRule> makeGeneralRules() {
+        Guard dash = containsAny(DASH_CHARS);
+        Guard digit = CleanupRule.ANY_DIGIT;
+        Guard upper = startsWithAny(UPPERCASE + ".'");
+
+        // pieces of the date and time patterns
+        Element slashDate = sequence(digits(1, 2), literal("/"), digits(1, 2), literal("/"), optional(literal("20")), digits(2, 2));
+        Element time = sequence(digits(1, 2), literal(":"), digits(1, 2));
+        Element amPm = optional(sequence(oneOf("aApP"), oneOf("mM")));
+        Element th = optional(sequence(oneOf("tT"), oneOf("hH")));
+        Element year = sequence(optional(literal("20")), digits(2, 2));
+        Element dashSpace = optional(sequence(dash(), literal(" ")));
+
+        List<CleanupRule> rules = new ArrayList<CleanupRule>();
+
         // JavaScript text
-        descText = descText.replaceFirst(".*Hello, you either have JavaScript turned off or an old version of Adobe's Flash Player. ", "");
+        rules.add(new CleanupRule(".*Hello, you either have JavaScript turned off or an old version of Adobe's Flash Player. ", contains("Hello, you either have JavaScript")));
 
         // Authors
-        descText = descText.replaceFirst("^[bB][yY] " + LOWERCASE_NAME + "( (and|AND|And) " + LOWERCASE_NAME + ")*( " + DASH + ")?(\\.| \\||,|:)? ", ""); // By David Jung-Jung and David Jung (at beginning)
-        descText = descText.replaceFirst("^[bB][yY] " + UPPERCASE_NAME + "( (and|AND|And) " + UPPERCASE_NAME + ")*( " + DASH + ")?(\\.| \\||,|:)? ", ""); // BY DAVID JUNG
+        rules.add(new CleanupRule("^[bB][yY] " + LOWERCASE_NAME + "( (and|AND|And) " + LOWERCASE_NAME + ")*( " + DASH + ")?(\\.| \\||,|:)? ", startsWithIgnoreCase("by "))); // By David Jung-Jung and David Jung (at beginning)
+        rules.add(new CleanupRule("^[bB][yY] " + UPPERCASE_NAME + "( (and|AND|And) " + UPPERCASE_NAME + ")*( " + DASH + ")?(\\.| \\||,|:)? ", startsWithIgnoreCase("by "))); // BY DAVID JUNG
 
         // Specific source-independent tags.
-        descText = descText.replaceFirst("^AP ((Sports|Photo)( |/))?(\\| )?", ""); // AP
-        descText = descText.replaceFirst(".*/CNW/ - ", ""); // CNW
+        rules.add(new CleanupRule("^AP ((Sports|Photo)( |/))?(\\| )?", startsWithIgnoreCase("AP "))); // AP
+        rules.add(new CleanupRule(".*/CNW/ - ", contains("/CNW/ - "))); // CNW
 
         // Sources like (AP), (Businessweekly) followed by a dash
-        descText = descText.replaceFirst(".*\\([A-Z]+.*\\) " + DASH + " ", "");
-        descText = descText.replaceFirst("^(\\([A-Za-z0-9\\. ]+\\)(\\.)?( |" + DASH + "))", ""); // ^(SOURCE)( |-)
-        descText = descText.replaceFirst("^[A-Za-z]+( " + DASH + "|:) ", "");
+        // [A-Z]+ may stop after its first letter, so one is all "(" needs.
+        rules.add(new CleanupRule(".*\\([A-Z]+.*\\) " + DASH + " ",
+                throughLastAfter(sequence(literal("("), oneOf(UPPERCASE)), literal(") "), dash(), literal(" ")),
+                both(contains("(", ") "), dash)));
+        rules.add(new CleanupRule("^(\\([A-Za-z0-9\\. ]+\\)(\\.)?( |" + DASH + "))", startsWithAny("("))); // ^(SOURCE)( |-)
+        rules.add(new CleanupRule("^[A-Za-z]+( " + DASH + "|:) ", both(startsWithAny(UPPERCASE + LOWERCASE), containsAny(DASH_CHARS + ":"))));
 
         // Date and time together:
-        descText = descText.replaceFirst(".*[0-9]{1,2}/[0-9]{1,2}/(20)?[0-9]{2} [0-9]{1,2}:[0-9]{1,2} ([aApP][mM])?( " + TIME_ZONE + ")?(\\.|,|:)? (" + DASH + " )?", ""); // 12/12/12 12:12 pm
-        descText = descText.replaceFirst("^([Oo][Nn] )?" + DAY + "(,) [0-9]{1,2}/[0-9]{1,2}/(20)?[0-9]{2} - [0-9]{1,2}:[0-9]{1,2} ([aApP][mM])?", ""); // Fri(,) 12/12/2012 - 12:12( pm| am)
+        rules.add(new CleanupRule(".*[0-9]{1,2}/[0-9]{1,2}/(20)?[0-9]{2} [0-9]{1,2}:[0-9]{1,2} ([aApP][mM])?( " + TIME_ZONE + ")?(\\.|,|:)? (" + DASH + " )?",
+                throughLast(slashDate, literal(" "), time, literal(" "), amPm, optional(sequence(literal(" "), token(timeZones))), optional(oneOf(".,:")), literal(" "), dashSpace),
+                contains("/", ":"))); // 12/12/12 12:12 pm
+        rules.add(new CleanupRule("^([Oo][Nn] )?" + DAY + "(,) [0-9]{1,2}/[0-9]{1,2}/(20)?[0-9]{2} - [0-9]{1,2}:[0-9]{1,2} ([aApP][mM])?",
+                atStart(optional(sequence(oneOf("Oo"), oneOf("Nn"), literal(" "))), token(days), literal(", "), slashDate, literal(" - "), time, literal(" "), amPm),
+                both(startsWithAny("Oo" + DAY_INITIALS), contains("/", ":")))); // Fri(,) 12/12/2012 - 12:12( pm| am)
 
         // Dates:
-        descText = descText.replaceFirst("^([pP]osted )?([oO][nN] )?(" + DAY + "(,) )?[0-9]{1,2}/[0-9]{1,2}/(20)?[0-9]{2} (" + DASH + " )?", ""); // (Posted )(On )12/12/(20)12
-        descText = descText.replaceFirst("^(Posted )?(on )?(" + DAY + "(,) )?[0-9]{1,2}([tT][hH])? " + MONTH + "(,)? (20)?[0-9]{2}(\\.|,)? (" + DASH + " )?", ""); // ^9 Sep, 2012
-        descText = descText.replaceFirst("^(Posted )?(on )?(" + DAY + "(,) )?" + MONTH + " [0-9]{1,2}([tT][hH])?(,)? (20)?[0-9]{2}(\\.|,)? (" + DASH + " )?", ""); // ^Sep 9(th), 2012
-        descText = descText.replaceFirst(".*[0-9]{1,2}([tT][hH])? " + MONTH + "(,)? (20)?[0-9]{2}(\\.|,)? " + DASH + " ", ""); // 9 Sep, 2012 -
-        descText = descText.replaceFirst(".*" + MONTH + " [0-9]{1,2}([tT][hH])?(,)? (20)?[0-9]{2}(\\.|,)? " + DASH + " ", ""); // Sep 9(th), 2012 -
-        descText = descText.replaceFirst("^" + MONTH + " [0-9]{1,2}(,)?( (20|')[0-9]{2})?(:)?( " + DASH + " )?( )?", "");
+        rules.add(new CleanupRule("^([pP]osted )?([oO][nN] )?(" + DAY + "(,) )?[0-9]{1,2}/[0-9]{1,2}/(20)?[0-9]{2} (" + DASH + " )?",
+                atStart(optional(sequence(oneOf("pP"), literal("osted "))), optional(sequence(oneOf("oO"), oneOf("nN"), literal(" "))), optional(sequence(token(days), literal(", "))), slashDate, literal(" "), dashSpace),
+                both(startsWithAny("pPoO" + DAY_INITIALS + DIGITS), contains("/")))); // (Posted )(On )12/12/(20)12
+        rules.add(new CleanupRule("^(Posted )?(on )?(" + DAY + "(,) )?[0-9]{1,2}([tT][hH])? " + MONTH + "(,)? (20)?[0-9]{2}(\\.|,)? (" + DASH + " )?",
+                atStart(optional(literal("Posted ")), optional(literal("on ")), optional(sequence(token(days), literal(", "))), digits(1, 2), th, literal(" "), token(months), optional(literal(",")), literal(" "), year, optional(oneOf(".,")), literal(" "), dashSpace),
+                startsWithAny("Po" + DAY_INITIALS + DIGITS))); // ^9 Sep, 2012
+        rules.add(new CleanupRule("^(Posted )?(on )?(" + DAY + "(,) )?" + MONTH + " [0-9]{1,2}([tT][hH])?(,)? (20)?[0-9]{2}(\\.|,)? (" + DASH + " )?",
+                atStart(optional(literal("Posted ")), optional(literal("on ")), optional(sequence(token(days), literal(", "))), token(months), literal(" "), digits(1, 2), th, optional(literal(",")), literal(" "), year, optional(oneOf(".,")), literal(" "), dashSpace),
+                startsWithAny("Po" + DAY_INITIALS + MONTH_INITIALS))); // ^Sep 9(th), 2012
+        rules.add(new CleanupRule(".*[0-9]{1,2}([tT][hH])? " + MONTH + "(,)? (20)?[0-9]{2}(\\.|,)? " + DASH + " ",
+                throughLast(digits(1, 2), th, literal(" "), token(months), optional(literal(",")), literal(" "), year, optional(oneOf(".,")), literal(" "), dash(), literal(" ")),
+                both(digit, dash))); // 9 Sep, 2012 -
+        rules.add(new CleanupRule(".*" + MONTH + " [0-9]{1,2}([tT][hH])?(,)? (20)?[0-9]{2}(\\.|,)? " + DASH + " ",
+                throughLast(token(months), literal(" "), digits(1, 2), th, optional(literal(",")), literal(" "), year, optional(oneOf(".,")), literal(" "), dash(), literal(" ")),
+                both(digit, dash))); // Sep 9(th), 2012 -
+        rules.add(new CleanupRule("^" + MONTH + " [0-9]{1,2}(,)?( (20|')[0-9]{2})?(:)?( " + DASH + " )?( )?",
+                atStart(token(months), literal(" "), digits(1, 2), optional(literal(",")), optional(sequence(literal(" "), either(literal("20"), literal("'")), digits(2, 2))), optional(literal(":")), optional(sequence(literal(" "), dash(), literal(" "))), optional(literal(" "))),
+                startsWithAny(MONTH_INITIALS)));
 
         // Times
-        descText = descText.replaceFirst("^[0-9]{1,2}:[0-9]{1,2}( )?([pPaA][mM])? " + TIME_ZONE + "(\\.)? (" + DASH + " )?", ""); // 12:12 pm ET(.)
-        descText = descText.replaceFirst("^[0-9]{1,2}:[0-9]{1,2}( )?([pPaA][mM])?(\\.|,)?( )?(" + DASH + " )?", ""); // 12:12 pm (at beginning)
+        rules.add(new CleanupRule("^[0-9]{1,2}:[0-9]{1,2}( )?([pPaA][mM])? " + TIME_ZONE + "(\\.)? (" + DASH + " )?",
+                atStart(time, optional(literal(" ")), amPm, literal(" "), token(timeZones), optional(literal(".")), literal(" "), dashSpace),
+                both(startsWithAny(DIGITS), contains(":")))); // 12:12 pm ET(.)
+        rules.add(new CleanupRule("^[0-9]{1,2}:[0-9]{1,2}( )?([pPaA][mM])?(\\.|,)?( )?(" + DASH + " )?", both(startsWithAny(DIGITS), contains(":")))); // 12:12 pm (at beginning)
 
         // Cities
-        descText = descText.replaceFirst("^[A-Z\\.']+( [A-Z\\.']+)?: ", ""); // ^DAMASCUS:
-        descText = descText.replaceFirst("^[A-Z\\.']+( [A-Z\\.']+)?" + DASH, ""); // ^MONTREAL-
-        descText = descText.replaceFirst(".*([A-Z\\.']+ )+" + DASH + "( )?", ""); // LOS ANGELES -
-        descText = descText.replaceFirst(".*([A-Z\\.']+ )*([A-Z\\.']+), ([A-Z][a-z\\.]+ )+" + DASH + " ", ""); // AUSTIN, Texas|Ill. -
-        descText = descText.replaceFirst("^([A-Z\\.']+ )*([A-Z\\.']+), [A-Z\\.]+( [A-Z\\.]+)*" + DASH, ""); // ^AUSTIN, TEX REX.-
-
-        if (original.equals(descText)) return descText;
-
-        return fixGeneralContent(descText);
-    }
-
-
-    /* Returns a mapping from publisher to "cleaner" regex. */
-    private Map<String, String> fillPublishers() {
-        Map<String, String> pubs = new HashMap<String, String>();
-        URL publishersUrl = NewsScraperMain.class.getResource("GooglePublishers.csv");
-        BufferedReader br = null;
-
-        try {
-            br = new BufferedReader(new InputStreamReader(publishersUrl.openStream(), "UTF-8"));
-            String nextLine;
-            while((nextLine = br.readLine()) != null) {
-                String[] pubWithRegex = nextLine.split("\t");
-                String publisherName = pubWithRegex[0];
-                String regex = pubWithRegex[1];
-
-                pubs.put(publisherName, regex);
-            }
-
-            br.close();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-
-        return pubs;
+        rules.add(new CleanupRule("^[A-Z\\.']+( [A-Z\\.']+)?: ", both(upper, contains(": ")))); // ^DAMASCUS:
+        rules.add(new CleanupRule("^[A-Z\\.']+( [A-Z\\.']+)?" + DASH, both(upper, dash))); // ^MONTREAL-
+        // The last match of this one always starts on the last letter of the
+        // last word before the dash, so one letter is all it has to check.
+        rules.add(new CleanupRule(".*([A-Z\\.']+ )+" + DASH + "( )?",
+                throughLast(oneOf(UPPERCASE + ".'"), literal(" "), dash(), optional(literal(" "))),
+                dash)); // LOS ANGELES -
+        // Likewise the last match of this one starts on the letter before
+        // the comma.
+        rules.add(new CleanupRule(".*([A-Z\\.']+ )*([A-Z\\.']+), ([A-Z][a-z\\.]+ )+" + DASH + " ",
+                throughLast(oneOf(UPPERCASE + ".'"), literal(", "), words(UPPERCASE, LOWERCASE + "."), dash(), literal(" ")),
+                both(contains(", "), dash))); // AUSTIN, Texas|Ill. -
+        // [A-Z\\.]+( [A-Z\\.]+)* can only end where the dash starts, and so
+        // can ([A-Z\\.]+ )*[A-Z\\.]+, which is shorter to spell.
+        rules.add(new CleanupRule("^([A-Z\\.']+ )*([A-Z\\.']+), [A-Z\\.]+( [A-Z\\.]+)*" + DASH,
+                atStart(spaced(UPPERCASE + ".'"), run(UPPERCASE + ".'"), literal(", "), spaced(UPPERCASE + "."), run(UPPERCASE + "."), dash()),
+                both(upper, both(contains(", "), dash)))); // ^AUSTIN, TEX REX.-
+
+        return rules;
     }
 }
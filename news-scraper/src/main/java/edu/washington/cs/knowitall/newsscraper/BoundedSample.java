@@ -0,0 +1,139 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Keeps at most a fixed number of the items offered to it, so a stream of
+ * any length can be cut down to a sample in constant memory:
+ *
+ *  - top(k, order) keeps the k greatest items, with a min-heap;
+ *  - random(k, random) keeps k items chosen uniformly at random, with a
+ *    reservoir (Vitter's algorithm R).
+ */
+abstract class BoundedSample<T> {
+
+    protected final int capacity;
+
+    /** Number of items offered so far. */
+    protected long offered;
+
+    private BoundedSample(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Need room for an item.");
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return a sample of the k greatest items in order; of equal items, the
+     *         ones offered first are kept.
+     */
+    static <T> BoundedSample<T> top(int k, Comparator<? super T> order) {
+        return new Top<T>(k, order);
+    }
+
+    /** @return a sample of k items picked at random with random. */
+    static <T> BoundedSample<T> random(int k, Random random) {
+        return new Reservoir<T>(k, random);
+    }
+
+    /** Offers item to the sample, which may keep it or drop it. */
+    abstract void offer(T item);
+
+    /**
+     * @return the items kept: for top, greatest first; for random, in a
+     *         random order.
+     */
+    abstract List<T> toList();
+
+    /** @return the number of items offered so far. */
+    long getOffered() {
+        return offered;
+    }
+
+    private static class Top<T> extends BoundedSample<T> {
+
+        private final Comparator<? super T> order;
+
+        /** Least kept item at the head; of equal ones, the latest. */
+        private final PriorityQueue<Ranked<T>> heap;
+
+        Top(int capacity, Comparator<? super T> order) {
+            super(capacity);
+            this.order = order;
+            heap = new PriorityQueue<Ranked<T>>(capacity,
+                    new Comparator<Ranked<T>>() {
+                        public int compare(Ranked<T> a, Ranked<T> b) {
+                            int result = Top.this.order.compare(a.item, b.item);
+                            if (result != 0)
+                                return result;
+                            return a.rank < b.rank ? 1 : a.rank > b.rank ? -1 : 0;
+                        }
+                    });
+        }
+
+        void offer(T item) {
+            Ranked<T> ranked = new Ranked<T>(item, offered++);
+            if (heap.size() < capacity) {
+                heap.add(ranked);
+            } else if (heap.comparator().compare(ranked, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(ranked);
+            }
+        }
+
+        List<T> toList() {
+            List<Ranked<T>> ranked = new ArrayList<Ranked<T>>(heap);
+            Collections.sort(ranked, Collections.reverseOrder(heap.comparator()));
+            List<T> items = new ArrayList<T>(ranked.size());
+            for (Ranked<T> r : ranked)
+                items.add(r.item);
+            return items;
+        }
+    }
+
+    /* An item and the order it was offered in. */
+    private static class Ranked<T> {
+        final T item;
+        final long rank;
+
+        Ranked(T item, long rank) {
+            this.item = item;
+            this.rank = rank;
+        }
+    }
+
+    private static class Reservoir<T> extends BoundedSample<T> {
+
+        private final Random random;
+        private final List<T> items;
+
+        Reservoir(int capacity, Random random) {
+            super(capacity);
+            this.random = random;
+            items = new ArrayList<T>(capacity);
+        }
+
+        void offer(T item) {
+            offered++;
+            if (items.size() < capacity) {
+                items.add(item);
+                return;
+            }
+            // the offered-th item replaces a kept one with chance k/offered
+            long slot = (long) (random.nextDouble() * offered);
+            if (slot < capacity)
+                items.set((int) slot, item);
+        }
+
+        List<T> toList() {
+            List<T> shuffled = new ArrayList<T>(items);
+            Collections.shuffle(shuffled, random);
+            return shuffled;
+        }
+    }
+}
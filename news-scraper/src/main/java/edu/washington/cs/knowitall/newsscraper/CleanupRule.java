@@ -0,0 +1,149 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One step of ArticleTextCleaner's general cleanup: removes the first match
+ * of a regex from the text, like String.replaceFirst(regex, "").
+ *
+ * The pattern is compiled once, when the rule is made. Each rule also has a
+ * guard, a cheap check that fails on texts the pattern can't match (it
+ * doesn't start with the right character, or lacks a literal the pattern
+ * needs), so most rules never run the regex engine at all. A guard may let
+ * through texts that don't match, but must never reject one that does.
+ *
+ * A rule can also be backed by a TokenPattern that matches the same texts
+ * as its regex in linear time; the regex is then only kept as the
+ * reference the TokenPattern is checked against.
+ */
+class CleanupRule {
+
+    /** A cheap necessary condition for a rule to match. */
+    interface Guard {
+        boolean mayMatch(String text);
+    }
+
+    /** Lets every text through. */
+    static final Guard ANY = new Guard() {
+        public boolean mayMatch(String text) {
+            return true;
+        }
+    };
+
+    /** The text contains a digit. */
+    static final Guard ANY_DIGIT = new Guard() {
+        public boolean mayMatch(String text) {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c >= '0' && c <= '9')
+                    return true;
+            }
+            return false;
+        }
+    };
+
+    private final String regex;
+    private final Pattern pattern;
+    private final TokenPattern tokens;
+    private final Guard guard;
+
+    CleanupRule(String regex, Guard guard) {
+        this(regex, null, guard);
+    }
+
+    /**
+     * A rule that removes the first match of tokens, which must match the
+     * same texts as regex.
+     */
+    CleanupRule(String regex, TokenPattern tokens, Guard guard) {
+        this.regex = regex;
+        this.pattern = Pattern.compile(regex);
+        this.tokens = tokens;
+        this.guard = guard;
+    }
+
+    /** @return text without the first match of this rule. */
+    String apply(String text) {
+        if (!guard.mayMatch(text))
+            return text;
+        if (tokens != null) {
+            int[] match = tokens.find(text);
+            if (match == null)
+                return text;
+            return text.substring(0, match[0]) + text.substring(match[1]);
+        }
+        return applyRegex(text);
+    }
+
+    /** @return text without the first match of the regex of this rule. */
+    String applyRegex(String text) {
+        Matcher m = pattern.matcher(text);
+        if (!m.find())
+            return text;
+        return text.substring(0, m.start()) + text.substring(m.end());
+    }
+
+    /** @return true if this rule is backed by a TokenPattern. */
+    boolean hasTokenPattern() {
+        return tokens != null;
+    }
+
+    @Override
+    public String toString() {
+        return regex;
+    }
+
+    /** The text starts with one of chars. */
+    static Guard startsWithAny(final String chars) {
+        return new Guard() {
+            public boolean mayMatch(String text) {
+                return text.length() > 0 && chars.indexOf(text.charAt(0)) >= 0;
+            }
+        };
+    }
+
+    /** The text starts with prefix, ignoring case. */
+    static Guard startsWithIgnoreCase(final String prefix) {
+        return new Guard() {
+            public boolean mayMatch(String text) {
+                return text.regionMatches(true, 0, prefix, 0, prefix.length());
+            }
+        };
+    }
+
+    /** The text contains every one of parts. */
+    static Guard contains(final String... parts) {
+        return new Guard() {
+            public boolean mayMatch(String text) {
+                for (String part : parts) {
+                    if (!text.contains(part))
+                        return false;
+                }
+                return true;
+            }
+        };
+    }
+
+    /** The text contains at least one of chars. */
+    static Guard containsAny(final String chars) {
+        return new Guard() {
+            public boolean mayMatch(String text) {
+                for (int i = 0; i < text.length(); i++) {
+                    if (chars.indexOf(text.charAt(i)) >= 0)
+                        return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /** Both guards pass. */
+    static Guard both(final Guard first, final Guard second) {
+        return new Guard() {
+            public boolean mayMatch(String text) {
+                return first.mayMatch(text) && second.mayMatch(text);
+            }
+        };
+    }
+}
@@ -38,6 +38,38 @@ public class Config {
     private static final String EXTRACTED_DIR = "extracted_data_dir";
     private static final String FORMATTED_EXTRACTED_DATA = "formatted_extracted_data_dir";
     private static final String TAG = "tag";
+    private static final String FETCH_THREADS = "fetch-threads";
+    private static final String FETCH_THREADS_PER_HOST = "fetch-threads-per-host";
+    private static final String FETCH_CACHE_DIR = "fetch-cache-dir";
+    private static final String PUBLISHERS_FILE = "publishers-file";
+    private static final String ID_COUNT_FILE = "id-count-file";
+    private static final String DEFAULT_ID_COUNT_FILE = "idCount";
+    private static final String DATA_FORMAT = "data-format";
+    private static final String COLUMN_STORE_DIR = "column-store-dir";
+    private static final String INDEX_DIR = "index-dir";
+    private static final String DEDUP_FILE = "dedup-file";
+    private static final String NEAR_DUPLICATE_DISTANCE = "near-duplicate-distance";
+    private static final String EXTRACTION_CACHE_FILE = "extraction-cache-file";
+    private static final String EXTRACTION_CACHE_SIZE = "extraction-cache-size";
+    private static final String FETCH_INTERVAL = "fetch-interval";
+    private static final String FEED_FETCH_INTERVALS = "feed-fetch-intervals";
+
+    /** Values of the data-format field. */
+    public static final String JSON_FORMAT = "json";
+    public static final String NDJSON_FORMAT = "ndjson";
+
+    /** Used when the config file doesn't limit concurrent downloads. */
+    private static final int DEFAULT_FETCH_THREADS = 8;
+    private static final int DEFAULT_FETCH_THREADS_PER_HOST = 4;
+
+    /** Used when the config file doesn't set near-duplicate-distance. */
+    private static final int DEFAULT_NEAR_DUPLICATE_DISTANCE = 3;
+
+    /** Used when the config file doesn't set extraction-cache-size. */
+    private static final int DEFAULT_EXTRACTION_CACHE_SIZE = 50000;
+
+    /** Used when the config file doesn't set fetch-interval, in minutes. */
+    private static final int DEFAULT_FETCH_INTERVAL = 60;
 
     /** Holds all the information in the JSON config file. */
     private JsonObject configJson;
@@ -103,6 +135,11 @@ public class Config {
         formattedExtractedDataDir = configJson.get(FORMATTED_EXTRACTED_DATA).getAsString();
         tag = configJson.get(TAG).getAsString();
 
+        String dataFormat = getDataFormat();
+        if (!dataFormat.equals(JSON_FORMAT) && !dataFormat.equals(NDJSON_FORMAT))
+            throw new IllegalArgumentException("Unknown " + DATA_FORMAT + ": "
+                    + dataFormat);
+
         generateCategoryList();
     }
 
@@ -183,6 +220,151 @@ public class Config {
         return tag;
     }
 
+    /** @return the maximum number of feeds downloaded at the same time. */
+    public int getFetchThreads() {
+        return getOptionalInt(FETCH_THREADS, DEFAULT_FETCH_THREADS);
+    }
+
+    /** @return the maximum number of concurrent downloads from one host. */
+    public int getFetchThreadsPerHost() {
+        return getOptionalInt(FETCH_THREADS_PER_HOST,
+                              DEFAULT_FETCH_THREADS_PER_HOST);
+    }
+
+    /**
+     * @return the directory where the last response of every feed is kept;
+     *         defaults to fetch_cache/ in the root directory.
+     */
+    public String getFetchCacheDir() {
+        if (!configJson.has(FETCH_CACHE_DIR))
+            return rootDir + "fetch_cache/";
+        return configJson.get(FETCH_CACHE_DIR).getAsString();
+    }
+
+    /**
+     * @return the file of publisher cleanup rules, which is reloaded when it
+     *         changes; null to use the bundled GooglePublishers.csv.
+     */
+    public String getPublishersFile() {
+        if (!configJson.has(PUBLISHERS_FILE))
+            return null;
+        return configJson.get(PUBLISHERS_FILE).getAsString();
+    }
+
+    /**
+     * @return the file that article ids are counted in, shared by every
+     *         scraper on the machine; defaults to idCount in the working
+     *         directory.
+     */
+    public String getIdCountFile() {
+        if (!configJson.has(ID_COUNT_FILE))
+            return DEFAULT_ID_COUNT_FILE;
+        return configJson.get(ID_COUNT_FILE).getAsString();
+    }
+
+    /**
+     * @return how rss.data and extracted data files are written: "json",
+     *         one object or array per file, or "ndjson", one article per
+     *         line. Files of either format can be read whatever this is.
+     *         Defaults to json.
+     */
+    public String getDataFormat() {
+        if (!configJson.has(DATA_FORMAT))
+            return JSON_FORMAT;
+        return configJson.get(DATA_FORMAT).getAsString();
+    }
+
+    /**
+     * @return the directory of the ExtractionStore that extractions are
+     *         copied to by column; defaults to columns/ in the root
+     *         directory.
+     */
+    public String getColumnStoreDir() {
+        if (!configJson.has(COLUMN_STORE_DIR))
+            return rootDir + "columns/";
+        return configJson.get(COLUMN_STORE_DIR).getAsString();
+    }
+
+    /**
+     * @return the directory of the SearchIndex of the extracted data;
+     *         defaults to index/ in the root directory.
+     */
+    public String getIndexDir() {
+        if (!configJson.has(INDEX_DIR))
+            return rootDir + "index/";
+        return configJson.get(INDEX_DIR).getAsString();
+    }
+
+    /**
+     * @return the file of the DedupStore that remembers the stories of
+     *         earlier days; defaults to dedup.table in the root directory.
+     */
+    public String getDedupFile() {
+        if (!configJson.has(DEDUP_FILE))
+            return rootDir + "dedup.table";
+        return configJson.get(DEDUP_FILE).getAsString();
+    }
+
+    /**
+     * @return the most bits, 0 to 63, in which the SimHash fingerprints of
+     *         two contents may differ for the later one to be dropped as a
+     *         near duplicate; negative to keep near duplicates. Defaults
+     *         to 3.
+     */
+    public int getNearDuplicateDistance() {
+        return getOptionalInt(NEAR_DUPLICATE_DISTANCE,
+                              DEFAULT_NEAR_DUPLICATE_DISTANCE);
+    }
+
+    /**
+     * @return the file of the ExtractionCache that keeps what chunking and
+     *         ReVerb made of each sentence; defaults to extraction.cache in
+     *         the root directory.
+     */
+    public String getExtractionCacheFile() {
+        if (!configJson.has(EXTRACTION_CACHE_FILE))
+            return rootDir + "extraction.cache";
+        return configJson.get(EXTRACTION_CACHE_FILE).getAsString();
+    }
+
+    /**
+     * @return the most sentences the extraction cache keeps; 0 to chunk and
+     *         extract every sentence afresh. Defaults to 50000.
+     */
+    public int getExtractionCacheSize() {
+        return getOptionalInt(EXTRACTION_CACHE_SIZE,
+                              DEFAULT_EXTRACTION_CACHE_SIZE);
+    }
+
+    /**
+     * @param feedName the name of a feed, CATEGORY_FEED as in the names of
+     *                 raw data files.
+     * @return the minutes between two fetches of the feed in daemon mode:
+     *         its entry in feed-fetch-intervals, or else fetch-interval,
+     *         which defaults to 60.
+     */
+    public int getFetchInterval(String feedName) {
+        if (configJson.has(FEED_FETCH_INTERVALS)) {
+            JsonObject intervals = configJson.get(FEED_FETCH_INTERVALS)
+                    .getAsJsonObject();
+            if (intervals.has(feedName))
+                return intervals.get(feedName).getAsInt();
+        }
+        return getOptionalInt(FETCH_INTERVAL, DEFAULT_FETCH_INTERVAL);
+    }
+
+    /** @return true if data files are written one article per line. */
+    public boolean isNdjson() {
+        return getDataFormat().equals(NDJSON_FORMAT);
+    }
+
+    /* Reads an int field that may be left out of the config file. */
+    private int getOptionalInt(String field, int defaultValue) {
+        if (!configJson.has(field))
+            return defaultValue;
+        return configJson.get(field).getAsInt();
+    }
+
     /* read the given file into memory as a string */
     private String readFile(URL configUrl) throws IOException {
         BufferedReader br = new BufferedReader(new InputStreamReader(configUrl.openStream()));
@@ -0,0 +1,194 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Remembers, across runs, the day each title and content was first
+ * scraped, so a story that a feed carries for several days is only
+ * processed, extracted and formatted on the first of them.
+ *
+ * Texts are kept as 64-bit hashes in an open-addressing table (linear
+ * probing) that is memory-mapped from one file: a header of MAGIC and the
+ * number of slots, then the slots, each the 8 byte hash and the 4 byte day
+ * it was first seen, yyyyMMdd. Hash 0 marks an empty slot. The day of a
+ * slot is written before its hash, so a slot is never seen half made. When
+ * the table is half full it is copied to one twice the size, which then
+ * replaces the file.
+ *
+ * One process at a time may use a file; the scrapers of different configs
+ * have different root directories, and so different files.
+ */
+class DedupStore implements Closeable {
+
+    private static final int MAGIC = 0x44445331;
+    private static final int HEADER_SIZE = 8;
+    private static final int SLOT_SIZE = 12;
+    private static final int INITIAL_SLOTS = 1 << 16;
+
+    private final File file;
+    private RandomAccessFile raf;
+    private MappedByteBuffer table;
+    private int slots;
+    private int size;
+
+    /**
+     * Opens the table in file, or makes an empty one if there is no file.
+     * @throws IOException if the file can't be mapped or isn't a table.
+     */
+    DedupStore(File file) throws IOException {
+        this.file = file;
+        if (!file.exists() || file.length() == 0) {
+            File parent = file.getAbsoluteFile().getParentFile();
+            if (parent != null)
+                parent.mkdirs();
+            create(file, INITIAL_SLOTS);
+        }
+        open();
+    }
+
+    /**
+     * @return the hash of text, ignoring case and runs of white space; never
+     *         0.
+     */
+    static long hash(String text) {
+        // FNV-1a over the normalized text, then the MurmurHash3 finalizer
+        // to spread the bits over the slots
+        long hash = 0xcbf29ce484222325L;
+        boolean started = false;
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = started;
+                continue;
+            }
+            if (space)
+                hash = (hash ^ ' ') * 0x100000001b3L;
+            started = true;
+            space = false;
+            hash = (hash ^ Character.toLowerCase(c)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+
+    /** @return the day of date, "yyyy-MM-dd", as stored: yyyyMMdd. */
+    static int day(String date) {
+        return Integer.parseInt(date.replace("-", ""));
+    }
+
+    /** @return the day hash was first seen, or 0 if it never was. */
+    synchronized int firstSeen(long hash) {
+        int slot = find(hash);
+        return table.getLong(offset(slot)) == 0 ? 0
+                : table.getInt(offset(slot) + 8);
+    }
+
+    /**
+     * Records that hash was seen on day, unless it was seen on an earlier
+     * day already.
+     * @throws IOException if the table has to grow and can't.
+     */
+    synchronized void record(long hash, int day) throws IOException {
+        int slot = find(hash);
+        int offset = offset(slot);
+        if (table.getLong(offset) != 0) {
+            if (day < table.getInt(offset + 8))
+                table.putInt(offset + 8, day);
+            return;
+        }
+        table.putInt(offset + 8, day);
+        table.putLong(offset, hash);
+        if (++size * 2 > slots)
+            grow();
+    }
+
+    /** @return the number of hashes in the table. */
+    synchronized int size() {
+        return size;
+    }
+
+    /** Writes the table to disk and unmaps it. */
+    public synchronized void close() throws IOException {
+        table.force();
+        raf.close();
+    }
+
+    /* The slot of hash, or the empty slot where it would go. */
+    private int find(long hash) {
+        int slot = (int) (hash & (slots - 1));
+        while (true) {
+            long stored = table.getLong(offset(slot));
+            if (stored == 0 || stored == hash)
+                return slot;
+            slot = (slot + 1) & (slots - 1);
+        }
+    }
+
+    private static int offset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    /* Maps file and counts the hashes in it. */
+    private void open() throws IOException {
+        raf = new RandomAccessFile(file, "rw");
+        table = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0,
+                raf.length());
+        slots = table.getInt(4);
+        if (table.getInt(0) != MAGIC || Integer.bitCount(slots) != 1
+                || raf.length() != offset(slots)) {
+            raf.close();
+            throw new IOException(file + " isn't a dedup table.");
+        }
+        size = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            if (table.getLong(offset(slot)) != 0)
+                size++;
+        }
+    }
+
+    /* Copies the table to one of twice as many slots, which replaces it. */
+    private void grow() throws IOException {
+        File bigger = new File(file.getPath() + ".tmp");
+        create(bigger, slots * 2);
+        DedupStore copy = new DedupStore(bigger);
+        try {
+            for (int slot = 0; slot < slots; slot++) {
+                long hash = table.getLong(offset(slot));
+                if (hash != 0)
+                    copy.record(hash, table.getInt(offset(slot) + 8));
+            }
+        } finally {
+            copy.close();
+        }
+        close();
+        if (!bigger.renameTo(file)) {
+            file.delete();
+            if (!bigger.renameTo(file))
+                throw new IOException("Can't rename " + bigger + ".");
+        }
+        open();
+    }
+
+    /* Makes an empty table of the given number of slots in file. */
+    private static void create(File file, int slots) throws IOException {
+        RandomAccessFile out = new RandomAccessFile(file, "rw");
+        try {
+            out.setLength(0);
+            out.setLength(offset(slots));
+            out.writeInt(MAGIC);
+            out.writeInt(slots);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -12,25 +12,27 @@ import java.text.DateFormat;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
-import java.util.Scanner;
 import java.util.Set;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.gson.stream.JsonReader;
+
 public class ExtractedDataFormatter {
 
     private final int MAX_OUTPUT_DATA = 500;
     private final String ENCODE = "UTF-8";
+    private final String OUTPUT_FILE_NAME = "top_" + MAX_OUTPUT_DATA + ".txt";
+    private final String RANDOM_OUTPUT_FILE_NAME = "random_" + MAX_OUTPUT_DATA
+            + ".txt";
 
     Logger logger;
 
@@ -48,7 +50,12 @@ public class ExtractedDataFormatter {
     private Date endDate;
     private String category;
     private double confidenceThreshold;
-    private List<FormattedNewsData> data;
+    /** What to keep, from the options above; checked while reading. */
+    private FormatFilter filter;
+    /** The extractions to output, at most MAX_OUTPUT_DATA of them. */
+    private BoundedSample<FormattedNewsData> data;
+    /** True to output a random sample rather than the most confident. */
+    private boolean randomSample;
     private boolean allTime;
     private Set<String> duplicateChecker;
     private int totalCount = 0;
@@ -61,12 +68,13 @@ public class ExtractedDataFormatter {
      * @throws IOException
      */
     public ExtractedDataFormatter(Calendar cal, Config con) {
+        config = con;
         startDate = null;
         endDate = null;
         extractedDataSuffix = null;
         extractedDataDir = null;
         allTime = false;
-        data = new ArrayList<FormattedNewsData>();
+        randomSample = false;
         calendar = cal;
         duplicateChecker = new HashSet<String>();
         loadConfig();
@@ -110,7 +118,7 @@ public class ExtractedDataFormatter {
             if (timeInterval != null)
                 throw new IllegalArgumentException("either formtToday is true"
                         + " or timeInterval is null");
-            // startDate = endDate = new Date()
+            startDate = endDate = calendar.getTime();
         } else if (timeInterval != null) {
             if (timeInterval[0] == null || timeInterval[1] == null)
                 throw new IllegalArgumentException(
@@ -139,53 +147,148 @@ public class ExtractedDataFormatter {
         // }
     }
 
+    /**
+     * Choose which extractions are output.
+     * @param random true for MAX_OUTPUT_DATA extractions picked at random,
+     *               in random_500.txt; false, the default, for the
+     *               MAX_OUTPUT_DATA most confident, in top_500.txt.
+     */
+    public void setRandomSample(boolean random) {
+        randomSample = random;
+    }
+
     /*
-     * start formatting the data
+     * start formatting the data. Skipped when the manifest of the target
+     * directory shows the output was made from the same files, unchanged,
+     * with the same options.
      */
     private void startFormatting() {
-        try {
-            File srcFolder = new File(srcDir);
-            if (!srcDir.endsWith("/"))
-                srcDir += "/";
-            String[] files = srcFolder.list();
-            for (String file : files) {
-                // get the time of the file(parse the time in the file's name)
-                String time = getFileTime(file);
-
-                if (allTime)
-                    formatFile(srcDir, file);
-                else {
-                    Date thisDate = dateFormat.parse(time);
-                    if (!thisDate.after(endDate) && !thisDate.before(startDate))
-                        formatFile(srcDir, file);
-                }
+        // selected file name -> its stamp, taken before it is read
+        Map<String, String> selected = new LinkedHashMap<String, String>();
+        filter = new FormatFilter(category,
+                allTime ? null : dateFormat.format(startDate),
+                allTime ? null : dateFormat.format(endDate),
+                confidenceThreshold);
+        File srcFolder = new File(srcDir);
+        if (!srcDir.endsWith("/"))
+            srcDir += "/";
+        String[] files = srcFolder.list();
+        for (String file : files) {
+            // files out of the time interval are never opened
+            if (filter.acceptsDate(getFileTime(file)))
+                selected.put(file, PipelineManifest.stamp(new File(srcDir + file)));
+        }
 
-            }
-        } catch (ParseException excp) {
-            excp.printStackTrace();
+        PipelineManifest manifest = openManifest(rootDir + targetDir);
+        String options = getOptions();
+        if (manifest != null && isFormatted(manifest, selected, options)) {
+            logger.info("startFormatting(): {} is up to date.",
+                    rootDir + targetDir + getOutputFileName());
+            return;
         }
 
-        // sortData();
-        // data = data.subList(0, MAX_OUTPUT_DATA);
-        shuffleData();
+        // only the extractions that make the cut are kept while reading
+        if (randomSample)
+            data = BoundedSample.random(MAX_OUTPUT_DATA, new Random());
+        else
+            data = BoundedSample.top(MAX_OUTPUT_DATA,
+                    new FormattedNewsDataComparator());
+        for (String file : selected.keySet())
+            formatFile(srcDir, file);
+        logger.info("startFormatting(): Kept {} of {} extractions.",
+                Math.min(MAX_OUTPUT_DATA, data.getOffered()), data.getOffered());
+
         // System.out.println(this.confidenceThreshold + "\t" + totalCount +
         // "\t" + totalConf / totalCount);
         // System.out.println("average conf: " + totalConf / totalCount);
 
         //
-        outputData();
+        if (outputData() && manifest != null && !randomSample)
+            recordFormatted(manifest, selected, options);
+    }
+
+    /* Load the manifest of the given directory; null if it can't be read. */
+    private PipelineManifest openManifest(String dir) {
+        try {
+            return new PipelineManifest(new File(dir));
+        } catch (IOException e) {
+            logger.error("openManifest(): Can't read the manifest of {}.", dir);
+            logger.error("{}", e);
+            return null;
+        }
+    }
+
+    /* The options that decide what goes into the output. */
+    private String getOptions() {
+        String interval = allTime ? "all" : dateFormat.format(startDate)
+                + " " + dateFormat.format(endDate);
+        return "time " + interval + " confidence " + confidenceThreshold
+                + " category " + category;
+    }
+
+    /* The file the output goes to, in the target directory. */
+    private String getOutputFileName() {
+        return randomSample ? RANDOM_OUTPUT_FILE_NAME : OUTPUT_FILE_NAME;
     }
 
     /*
-     * output the data to disk
+     * True if the output exists and the manifest records it as made from
+     * exactly the selected files, as they are now, with options.
      */
-    private void outputData() {
+    private boolean isFormatted(PipelineManifest manifest,
+            Map<String, String> selected, String options) {
+        // a random sample is drawn again on every run
+        if (randomSample)
+            return false;
+        if (!new File(rootDir + targetDir + OUTPUT_FILE_NAME).exists())
+            return false;
+        if (!options.equals(manifest.get(PipelineManifest.FORMAT_OPTIONS,
+                OUTPUT_FILE_NAME)))
+            return false;
+        if (!manifest.keys(PipelineManifest.FORMATTED).equals(selected.keySet()))
+            return false;
+        for (Map.Entry<String, String> file : selected.entrySet()) {
+            if (!file.getValue().equals(manifest.get(
+                    PipelineManifest.FORMATTED, file.getKey())))
+                return false;
+        }
+        return true;
+    }
+
+    /* Record that the output was made from the selected files with options. */
+    private void recordFormatted(PipelineManifest manifest,
+            Map<String, String> selected, String options) {
+        try {
+            for (String file : manifest.keys(PipelineManifest.FORMATTED)) {
+                if (!selected.containsKey(file))
+                    manifest.reset(PipelineManifest.FORMATTED, file);
+            }
+            for (Map.Entry<String, String> file : selected.entrySet()) {
+                if (!file.getValue().equals(manifest.get(
+                        PipelineManifest.FORMATTED, file.getKey())))
+                    manifest.add(PipelineManifest.FORMATTED, file.getKey(),
+                            file.getValue());
+            }
+            if (!options.equals(manifest.get(PipelineManifest.FORMAT_OPTIONS,
+                    OUTPUT_FILE_NAME)))
+                manifest.add(PipelineManifest.FORMAT_OPTIONS, OUTPUT_FILE_NAME,
+                        options);
+        } catch (IOException e) {
+            logger.error("recordFormatted(): Failure to update manifest.");
+            logger.error("{}", e);
+        }
+    }
+
+    /*
+     * output the data to disk; returns true if it was written.
+     */
+    private boolean outputData() {
         try {
             String outputFolderDir = rootDir + targetDir;
             File outputLoc = new File(outputFolderDir);
             outputLoc.mkdirs();
 
-            String outputFileName = outputFolderDir + "top_500.txt";
+            String outputFileName = outputFolderDir + getOutputFileName();
 
             File outputFile = new File(outputFileName);
             if (!outputFile.exists())
@@ -193,14 +296,11 @@ public class ExtractedDataFormatter {
 
             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
                     new FileOutputStream(outputFile), ENCODE));
-            StringBuilder sb = new StringBuilder();
-            // int length = Math.min(MAX_OUTPUT_DATA, data.size());
-            int length = data.size();
-            for (int i = 0; i < length; i++) {
-                sb.append(data.get(i).toString());
+            for (FormattedNewsData extraction : data.toList()) {
+                out.write(extraction.toString());
             }
-            out.write(sb.toString());
             out.close();
+            return true;
         } catch (UnsupportedEncodingException excp) {
             excp.printStackTrace();
         } catch (FileNotFoundException excp) {
@@ -208,21 +308,7 @@ public class ExtractedDataFormatter {
         } catch (IOException excp) {
             excp.printStackTrace();
         }
-    }
-
-    /*
-     * sort the stored data
-     */
-    private void sortData() {
-        Collections.sort(data, new FormattedNewsDataComparator());
-    }
-
-    /*
-     * shuffle the stored data
-     */
-    private void shuffleData() {
-        // Collections.shuffle(data);
-        Collections.shuffle(data, new Random());
+        return false;
     }
 
     /*
@@ -233,69 +319,147 @@ public class ExtractedDataFormatter {
     }
 
     /*
-     * convert data from
+     * convert the extractions of the given file, read one article at a
+     * time in any of the data formats.
      */
     private void formatFile(String dir, String fileName) {
         File file = new File(dir + fileName);
-        String fileContent = getContent(file);
+        ArticleFormatter formatter = new ArticleFormatter();
         try {
-            JSONObject jFile = new JSONObject(fileContent);
-            String[] keys = JSONObject.getNames(jFile);
-            for (String key : keys) {// each news
-                JSONObject value = (JSONObject) jFile.get(key);
-                JSONArray extractions = value.getJSONArray("extractions");
-                String title = value.getString("title").trim();
-                if (duplicateChecker.contains(title))
-                    continue;
-                duplicateChecker.add(title);
-                long id = Long.parseLong(key);
-                // each extraction for the news
-                for (int i = 0; i < extractions.length(); i++) {
-                    JSONObject extraction = (JSONObject) extractions.get(i);
-                    // if(extraction.get("confidence"))
-                    FormattedNewsData currentNewsData = new FormattedNewsData();
-                    currentNewsData.confidence = extraction
-                            .getDouble("confidence");
-                    if (confidenceThreshold == -1
-                            || currentNewsData.confidence > confidenceThreshold) {
-                        currentNewsData.id = id;
-                        currentNewsData.title = title;
-                        currentNewsData.url = value.getString("url");
-                        currentNewsData.date = value.getString("date");
-                        currentNewsData.category = value.getString("category");
-                        currentNewsData.arg1 = extraction.getString("arg1");
-                        currentNewsData.arg2 = extraction.getString("arg2");
-                        currentNewsData.relation = extraction
-                                .getString("relation");
-                        currentNewsData.sentence = extraction.getString("sent");
-                        data.add(currentNewsData);
-                        totalCount++;
-                        totalConf += currentNewsData.confidence;
-                    }
-                }
-
+            NewsRecordReader in = new NewsRecordReader(file);
+            try {
+                // each news, handed to formatter
+                while (in.next(formatter))
+                    ;
+            } finally {
+                in.close();
             }
-        } catch (JSONException excp) {
-            excp.printStackTrace();
+        } catch (IOException excp) {
+            logger.error("formatFile(): Failed to load file: {}.",
+                    file.toString());
+            logger.error("{}", excp);
+        } catch (RuntimeException excp) {
+            // a field of the wrong type
+            logger.error("formatFile(): Bad article in {}.", file.toString());
+            logger.error("{}", excp);
         }
+        logger.info("formatFile(): {} of {} articles in {} match.",
+                new Object[] {formatter.matched, formatter.read, fileName});
     }
 
     /*
-     * return the content of given file
+     * Reads the articles of a file straight from it. An article of another
+     * date or category is skipped as soon as that field is read, and only
+     * the extractions over the confidence threshold of a matching article
+     * are made into FormattedNewsData and added to data.
      */
-    private String getContent(File file) {
-        StringBuilder sb = new StringBuilder();
-        try {
-            Scanner sc = new Scanner(file);
-            while (sc.hasNextLine())
-                sb.append(sc.nextLine());
+    private class ArticleFormatter implements NewsRecordReader.ArticleHandler {
+
+        int read = 0;
+        int matched = 0;
+
+        public void read(Long id, JsonReader article) throws IOException {
+            read++;
+            String title = null;
+            String url = null;
+            String date = null;
+            String articleCategory = null;
+            List<FormattedNewsData> extractions = new ArrayList<FormattedNewsData>();
+            boolean rejected = false;
+
+            article.beginObject();
+            while (article.hasNext()) {
+                String name = article.nextName();
+                if (rejected) {
+                    article.skipValue();
+                } else if (name.equals("title")) {
+                    title = article.nextString().trim();
+                } else if (name.equals("url")) {
+                    url = article.nextString();
+                } else if (name.equals("date")) {
+                    date = article.nextString();
+                    rejected = !filter.acceptsDate(date);
+                } else if (name.equals("category")) {
+                    articleCategory = article.nextString();
+                    rejected = !filter.acceptsCategory(articleCategory);
+                } else if (name.equals("extractions")) {
+                    readExtractions(article, extractions);
+                } else {
+                    article.skipValue();
+                }
+            }
+            article.endObject();
+
+            // a field may be missing, or come after the extractions
+            if (rejected || !filter.acceptsDate(date)
+                    || !filter.acceptsCategory(articleCategory))
+                return;
+            if (title == null)
+                throw new IOException("Article " + id + " has no title.");
+            if (duplicateChecker.contains(title))
+                return;
+            duplicateChecker.add(title);
+            matched++;
+
+            for (FormattedNewsData extraction : extractions) {
+                extraction.id = id;
+                extraction.title = title;
+                extraction.url = url;
+                extraction.date = date;
+                extraction.category = articleCategory;
+                data.offer(extraction);
+                totalCount++;
+                totalConf += extraction.confidence;
+            }
+        }
 
-        } catch (FileNotFoundException e) {
-            logger.error("getContent(): Failed to load file: {}.",
-                    file.toString());
-            logger.error("{}", e);
+        /*
+         * Adds the extractions over the confidence threshold to extractions,
+         * reading only the fields that are output.
+         */
+        private void readExtractions(JsonReader article,
+                List<FormattedNewsData> extractions) throws IOException {
+            article.beginArray();
+            while (article.hasNext()) {
+                String sentence = null;
+                String arg1 = null;
+                String relation = null;
+                String arg2 = null;
+                Double confidence = null;
+
+                article.beginObject();
+                while (article.hasNext()) {
+                    String name = article.nextName();
+                    if (name.equals("sent"))
+                        sentence = article.nextString();
+                    else if (name.equals("arg1"))
+                        arg1 = article.nextString();
+                    else if (name.equals("relation"))
+                        relation = article.nextString();
+                    else if (name.equals("arg2"))
+                        arg2 = article.nextString();
+                    else if (name.equals("confidence"))
+                        // written as a string, which nextDouble parses
+                        confidence = article.nextDouble();
+                    else
+                        article.skipValue();
+                }
+                article.endObject();
+
+                if (confidence == null)
+                    throw new IOException("Extraction without a confidence.");
+                if (!filter.acceptsConfidence(confidence))
+                    continue;
+                FormattedNewsData extraction = new FormattedNewsData();
+                extraction.confidence = confidence;
+                extraction.sentence = sentence;
+                extraction.arg1 = arg1;
+                extraction.relation = relation;
+                extraction.arg2 = arg2;
+                extractions.add(extraction);
+            }
+            article.endArray();
         }
-        return sb.toString();
     }
 
     /*
@@ -313,16 +477,12 @@ public class ExtractedDataFormatter {
         dateFormatStr = config.getDateFormatString();
     }
 
+    /* Orders extractions by confidence, the least confident first. */
     private class FormattedNewsDataComparator implements
             Comparator<FormattedNewsData> {
 
         public int compare(FormattedNewsData o1, FormattedNewsData o2) {
-            double result = o2.confidence - o1.confidence;
-            if (result < 0)
-                return -1;
-            if (result > 0)
-                return 1;
-            return 0;
+            return Double.compare(o1.confidence, o2.confidence);
         }
     }
 }
@@ -1,14 +1,13 @@
 package edu.washington.cs.knowitall.newsscraper;
 
+import java.io.IOException;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
-import java.util.Map.Entry;
 
-import edu.washington.cs.knowitall.extractor.ReVerbExtractor;
-import edu.washington.cs.knowitall.extractor.conf.ReVerbOpenNlpConfFunction;
+import org.json.JSONException;
+import org.json.JSONObject;
+
 import edu.washington.cs.knowitall.nlp.ChunkedSentence;
-import edu.washington.cs.knowitall.nlp.extraction.ChunkedBinaryExtraction;
 
 /**
  * This class adds extraction data to News Data.
@@ -19,104 +18,147 @@ import edu.washington.cs.knowitall.nlp.extraction.ChunkedBinaryExtraction;
 public class ExtractedNewsData extends NewsData {
 
     public Map<String, ChunkedSentence> extractions;
-    private ReVerbExtractor reverb;
     
     public ExtractedNewsData(String category, String subCategory, String title,
             String date) {
         super(category, subCategory, title, date);
         extractions = new HashMap<String, ChunkedSentence>();
-        reverb = new ReVerbExtractor();
     }
 
-    public String toJsonString(ReVerbExtractor re) {
-        if (reverb == null) reverb = re;
+    /**
+     * @param context the extractor and confidence function shared by all
+     *                the articles being serialized.
+     * @return this article and its extractions as a json string.
+     */
+    public String toJsonString(ExtractionContext context) {
         StringBuilder sb = new StringBuilder();
-        sb.append("\t\n{");
-        sb.append("\t\t" + getFieldsJson() + ", \n");
-        sb.append("\t\t" + getExtractionsJsonString() + "\n");
-        sb.append("}\n");
+        try {
+            writeJson(sb, context);
+        } catch (IOException e) {
+            // StringBuilder doesn't throw
+            throw new IllegalStateException(e);
+        }
         return sb.toString();
     }
 
+    /**
+     * Writes this article and its extractions as a json string to out.
+     * @param out where to write the json
+     * @param context the extractor and confidence function shared by all
+     *                the articles being serialized.
+     * @throws IOException if out fails
+     */
+    public void writeJson(Appendable out, ExtractionContext context)
+            throws IOException {
+        out.append("\t\n{");
+        out.append("\t\t");
+        writeFieldsJson(out);
+        out.append(", \n");
+        out.append("\t\t");
+        writeExtractionsJson(out, context, false);
+        out.append("\n");
+        out.append("}\n");
+    }
+
+    /**
+     * Writes this article and its extractions to out as one line of an
+     * ndjson file, with its id as the first field and a newline at the end.
+     * @param out where to write the json
+     * @param id the id of this article
+     * @param context the extractor and confidence function shared by all
+     *                the articles being serialized.
+     * @throws IOException if out fails
+     */
+    public void writeJsonLine(Appendable out, long id,
+            ExtractionContext context) throws IOException {
+        out.append("{\"id\":").append(String.valueOf(id)).append(", ");
+        writeFieldsJson(out);
+        out.append(", ");
+        writeExtractionsJson(out, context, true);
+        out.append("}\n");
+    }
+
+    @Override
+    public JSONObject toJSONObject() {
+        JSONObject jObject = super.toJSONObject();
+        try {
+            jObject.put("extractions", extractions);
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+        return jObject;
+    }
+
     // "extractions":[{"sent:":"content-of-the-extracted-string","arg1":"...",
     // "relation":"...", "arg2":"..."}, {...another extracted string..}, ..]
-    private String getExtractionsJsonString() {
+    // oneLine leaves out the newlines and tabs between the extractions.
+    private void writeExtractionsJson(Appendable out,
+            ExtractionContext context, boolean oneLine) throws IOException {
         assert extractions != null;
-        StringBuilder sb = new StringBuilder();
-        sb.append("\"extractions\":[");
-        Iterator<Entry<String, ChunkedSentence>> it = 
-                extractions.entrySet().iterator();
+        out.append("\"extractions\":[");
         boolean empty = true;
-        ReVerbOpenNlpConfFunction confFunc = null;
-        try {
-            confFunc = new ReVerbOpenNlpConfFunction();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(0);
-        }
         // iterate over each chunked sentence
-        while (it.hasNext()) {
-            Map.Entry<String, ChunkedSentence> pair = 
-                    (Map.Entry<String, ChunkedSentence>) it.next();
+        for (Map.Entry<String, ChunkedSentence> pair : extractions.entrySet()) {
             String sentString = pair.getKey();
             ChunkedSentence cs = pair.getValue();
-            if (reverb == null) reverb = new ReVerbExtractor();
-            Iterable<ChunkedBinaryExtraction> cbes = reverb.extract(cs);
-            
-            // iterate over each extraction from the sentence
-            for(ChunkedBinaryExtraction cbe : cbes) {
+
+            // iterate over each extraction from the sentence: arg1, rArg1,
+            // relation, rRel, arg2, rArg2 and confidence
+            for (String[] extraction : context.extract(sentString, cs)) {
+                // fence-post problem
+                if (!empty)
+                    out.append(',');
                 empty = false;
-                sb.append("\n\t\t\t{\"sent\":\"" +
-                        sentString.replace("\"", "\\\"") + "\", \n");
+                out.append(oneLine ? "{\"sent\":" : "\n\t\t\t{\"sent\":");
+                JsonStrings.appendQuoted(out, sentString);
 
                 // "arg1":"[arg1]",
-                sb.append("\t\t\t\t\"arg1\":\"" +
-                        cbe.getArgument1().toString().replace("\"", "\\\"") +
-                        "\", \n");
-                
+                writeExtractionField(out, oneLine, "arg1", extraction[0]);
+
                 // "rArg1":"[range of arg1]"
-                sb.append("\t\t\t\t\"rArg1\":\"" +
-                        cbe.getArgument1().getRange().toString() + "\", \n");
-                
+                writeExtractionField(out, oneLine, "rArg1", extraction[1]);
+
                 // "relation":"[rel]",
-                sb.append("\t\t\t\t\"relation\":\"" +
-                        cbe.getRelation().toString().replace("\"", "\\\"") +
-                        "\", \n");
-                
+                writeExtractionField(out, oneLine, "relation", extraction[2]);
+
                 // "rRel":"[range of rel]"
-                sb.append("\t\t\t\t\"rRel\":\"" +
-                        cbe.getRelation().getRange().toString() + "\", \n");
-                
+                writeExtractionField(out, oneLine, "rRel", extraction[3]);
+
                 // "arg2":"[arg2]",
-                sb.append("\t\t\t\t\"arg2\":\"" +
-                        cbe.getArgument2().toString().replace("\"", "\\\"") +
-                        "\", \n");
+                writeExtractionField(out, oneLine, "arg2", extraction[4]);
 
                 // "rArg2":"[range of arg2]"
-                sb.append("\t\t\t\t\"rArg2\":\"" +
-                        cbe.getArgument2().getRange().toString() + "\", \n");
-                
+                writeExtractionField(out, oneLine, "rArg2", extraction[5]);
+
                 // "chunkTags":"[chunk tags]"
-                sb.append("\t\t\t\t\"chunkTags\":\"" +
-                        cs.getChunkTagsAsString() + "\", \n");
-                
+                writeExtractionField(out, oneLine, "chunkTags",
+                        cs.getChunkTagsAsString());
+
                 // "posTags":"[pos tags]"
-                sb.append("\t\t\t\t\"posTags\":\"" +
-                        cs.getPosTagsAsString() + "\", \n");
-                
+                writeExtractionField(out, oneLine, "posTags",
+                        cs.getPosTagsAsString());
+
                 // "offsets":"[offsets]"
-                sb.append("\t\t\t\t\"offsets\":\"" +
-                        cs.getOffsetsAsString() + "\", \n");
-                
+                writeExtractionField(out, oneLine, "offsets",
+                        cs.getOffsetsAsString());
+
                 // "confidence":"[confidence]"
-                sb.append("\t\t\t\t\"confidence\":\"" + 
-                        confFunc.getConf(cbe) + "\"},");
+                writeExtractionField(out, oneLine, "confidence", extraction[6]);
+                out.append('}');
             }
         }
-        if (!empty)
-            sb.deleteCharAt(sb.length() - 1);
-        sb.append("]");
-        return sb.toString();
+        out.append("]");
+    }
+
+    /*
+     * Writes ", \n\t\t\t\t"name":"value"", the layout of extraction fields,
+     * or ", "name":"value"" on one line.
+     */
+    private static void writeExtractionField(Appendable out, boolean oneLine,
+            String name, String value) throws IOException {
+        out.append(oneLine ? ", \"" : ", \n\t\t\t\t\"");
+        out.append(name).append("\":");
+        JsonStrings.appendQuoted(out, value);
     }
 
 }
@@ -0,0 +1,261 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.washington.cs.knowitall.commonlib.Range;
+import edu.washington.cs.knowitall.nlp.ChunkedSentence;
+import edu.washington.cs.knowitall.sequence.SequenceException;
+
+/**
+ * Remembers, across runs, what chunking and ReVerb made of each sentence,
+ * so a sentence that comes up again, a title or a wire lead in another
+ * article or on another day, is neither chunked nor extracted again.
+ *
+ * Sentences are kept by a 64-bit hash of their exact text: the tokens,
+ * offsets and arguments depend on its case and spacing. Each has its
+ * tokens, POS tags, chunk tags and offsets, and the extractions ReVerb
+ * found in them, each arg1, rArg1, relation, rRel, arg2, rArg2 and
+ * confidence as written to the extracted data. At most maxSentences are
+ * kept; the least recently used go first.
+ *
+ * The cache is read from its file when it is made and written back, least
+ * recently used first, by save: MAGIC, the number of sentences, then for
+ * each its hash, its tokens with their tags and offsets, and its
+ * extractions. Delete the file when ReVerb or its models change.
+ */
+class ExtractionCache {
+
+    private static final int MAGIC = 0x45584331;
+    private static final int EXTRACTION_FIELDS = 7;
+
+    private final File file;
+    private final Map<Long, Sentence> sentences;
+    private long hits;
+    private long misses;
+
+    /**
+     * Reads the cache in file, or starts an empty one if there is no file.
+     * @param maxSentences the most sentences kept, at least 1.
+     * @throws IOException if the file can't be read or isn't a cache.
+     */
+    ExtractionCache(File file, final int maxSentences) throws IOException {
+        if (maxSentences < 1)
+            throw new IllegalArgumentException("Need room for a sentence.");
+        this.file = file;
+        sentences = new LinkedHashMap<Long, Sentence>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Sentence> e) {
+                return size() > maxSentences;
+            }
+        };
+        if (file.exists())
+            load();
+    }
+
+    /** @return the hash sentences are kept by; never 0. */
+    static long hash(String sentence) {
+        // FNV-1a, then the MurmurHash3 finalizer, as in DedupStore
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < sentence.length(); i++)
+            hash = (hash ^ sentence.charAt(i)) * 0x100000001b3L;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * Counts a hit or a miss.
+     * @return the chunked sentence, or null if it isn't cached.
+     */
+    synchronized ChunkedSentence getChunked(String sentence) {
+        Sentence cached = sentences.get(hash(sentence));
+        if (cached == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return cached.toChunkedSentence();
+    }
+
+    /**
+     * @return the extractions of sentence, each arg1, rArg1, relation,
+     *         rRel, arg2, rArg2 and confidence; null if it isn't cached.
+     */
+    synchronized List<String[]> getExtractions(String sentence) {
+        Sentence cached = sentences.get(hash(sentence));
+        return cached == null ? null : cached.extractions;
+    }
+
+    /** Keeps sentence, chunked as chunked, with its extractions. */
+    synchronized void put(String sentence, ChunkedSentence chunked,
+            List<String[]> extractions) {
+        for (String[] extraction : extractions) {
+            if (extraction.length != EXTRACTION_FIELDS)
+                throw new IllegalArgumentException("Not an extraction.");
+        }
+        sentences.put(hash(sentence), new Sentence(chunked, extractions));
+    }
+
+    /** @return the number of sentences found by getChunked. */
+    synchronized long getHits() {
+        return hits;
+    }
+
+    /** @return the number of sentences getChunked didn't find. */
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    /** @return the number of sentences kept. */
+    synchronized int size() {
+        return sentences.size();
+    }
+
+    /**
+     * Writes the cache to its file, through a temporary file that replaces
+     * it when complete.
+     */
+    synchronized void save() throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null)
+            parent.mkdirs();
+        File temp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(temp)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(sentences.size());
+            for (Map.Entry<Long, Sentence> entry : sentences.entrySet()) {
+                out.writeLong(entry.getKey());
+                entry.getValue().write(out);
+            }
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(file)) {
+            file.delete();
+            if (!temp.renameTo(file))
+                throw new IOException("Can't rename " + temp + ".");
+        }
+    }
+
+    private void load() throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC)
+                throw new IOException(file + " isn't an extraction cache.");
+            for (int count = in.readInt(); count > 0; count--) {
+                long hash = in.readLong();
+                sentences.put(hash, Sentence.read(in));
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /* What is kept of one sentence. */
+    private static class Sentence {
+
+        final String[] tokens;
+        final String[] posTags;
+        final String[] chunkTags;
+        /** The start and end of each token, one after the other. */
+        final int[] offsets;
+        final List<String[]> extractions;
+
+        Sentence(String[] tokens, String[] posTags, String[] chunkTags,
+                int[] offsets, List<String[]> extractions) {
+            this.tokens = tokens;
+            this.posTags = posTags;
+            this.chunkTags = chunkTags;
+            this.offsets = offsets;
+            this.extractions = extractions;
+        }
+
+        Sentence(ChunkedSentence chunked, List<String[]> extractions) {
+            int length = chunked.getLength();
+            tokens = chunked.getTokens().toArray(new String[length]);
+            posTags = new String[length];
+            chunkTags = new String[length];
+            offsets = new int[length * 2];
+            for (int i = 0; i < length; i++) {
+                // there are few tags; share one copy of each
+                posTags[i] = chunked.getPosTag(i).intern();
+                chunkTags[i] = chunked.getChunkTag(i).intern();
+                Range offset = chunked.getOffsets().get(i);
+                offsets[i * 2] = offset.getStart();
+                offsets[i * 2 + 1] = offset.getEnd();
+            }
+            this.extractions = new ArrayList<String[]>(extractions);
+        }
+
+        ChunkedSentence toChunkedSentence() {
+            Range[] ranges = new Range[tokens.length];
+            for (int i = 0; i < tokens.length; i++)
+                ranges[i] = Range.fromInterval(offsets[i * 2],
+                        offsets[i * 2 + 1]);
+            try {
+                return new ChunkedSentence(ranges, tokens, posTags, chunkTags);
+            } catch (SequenceException e) {
+                // the layers were taken from a ChunkedSentence
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(tokens.length);
+            for (int i = 0; i < tokens.length; i++) {
+                out.writeUTF(tokens[i]);
+                out.writeUTF(posTags[i]);
+                out.writeUTF(chunkTags[i]);
+                out.writeInt(offsets[i * 2]);
+                out.writeInt(offsets[i * 2 + 1]);
+            }
+            out.writeInt(extractions.size());
+            for (String[] extraction : extractions) {
+                for (String field : extraction)
+                    out.writeUTF(field);
+            }
+        }
+
+        static Sentence read(DataInputStream in) throws IOException {
+            int length = in.readInt();
+            String[] tokens = new String[length];
+            String[] posTags = new String[length];
+            String[] chunkTags = new String[length];
+            int[] offsets = new int[length * 2];
+            for (int i = 0; i < length; i++) {
+                tokens[i] = in.readUTF();
+                posTags[i] = in.readUTF().intern();
+                chunkTags[i] = in.readUTF().intern();
+                offsets[i * 2] = in.readInt();
+                offsets[i * 2 + 1] = in.readInt();
+            }
+            int count = in.readInt();
+            List<String[]> extractions = new ArrayList<String[]>(count);
+            for (int e = 0; e < count; e++) {
+                String[] extraction = new String[EXTRACTION_FIELDS];
+                for (int field = 0; field < EXTRACTION_FIELDS; field++)
+                    extraction[field] = in.readUTF();
+                extractions.add(extraction);
+            }
+            return new Sentence(tokens, posTags, chunkTags, offsets,
+                    extractions);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.washington.cs.knowitall.extractor.ReVerbExtractor;
+import edu.washington.cs.knowitall.extractor.conf.ReVerbOpenNlpConfFunction;
+import edu.washington.cs.knowitall.nlp.ChunkedSentence;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedBinaryExtraction;
+
+/**
+ * Holds the ReVerb extractor and confidence function used to serialize
+ * ExtractedNewsData. Both load models, so one context is shared by all the
+ * articles of a run, and each is only built the first time it is needed.
+ *
+ * A context may have an ExtractionCache, which is asked for the
+ * extractions of a sentence before ReVerb is, and is given those ReVerb
+ * finds.
+ *
+ * Neither ReVerb object is thread-safe; a context should be used by one
+ * thread at a time.
+ */
+public class ExtractionContext {
+
+    private ReVerbExtractor reverb;
+    private ReVerbOpenNlpConfFunction confFunc;
+    private ExtractionCache cache;
+
+    /** @return the extractor, built on the first call. */
+    public synchronized ReVerbExtractor getExtractor() {
+        if (reverb == null)
+            reverb = new ReVerbExtractor();
+        return reverb;
+    }
+
+    /**
+     * @return the confidence function, built on the first call.
+     * @throws IllegalStateException if its model can't be loaded.
+     */
+    public synchronized ReVerbOpenNlpConfFunction getConfFunction() {
+        if (confFunc == null) {
+            try {
+                confFunc = new ReVerbOpenNlpConfFunction();
+            } catch (Exception e) {
+                throw new IllegalStateException(
+                        "Unable to load the confidence function.", e);
+            }
+        }
+        return confFunc;
+    }
+
+    /** @param cache where extractions are looked up; null for none. */
+    synchronized void setCache(ExtractionCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * @param sentence the text of the sentence.
+     * @param chunked the sentence, chunked.
+     * @return the extractions of sentence, each arg1, rArg1, relation, rRel,
+     *         arg2, rArg2 and confidence, as written to the extracted data.
+     */
+    public synchronized List<String[]> extract(String sentence,
+            ChunkedSentence chunked) {
+        if (cache != null) {
+            List<String[]> cached = cache.getExtractions(sentence);
+            if (cached != null)
+                return cached;
+        }
+        List<String[]> extractions = new ArrayList<String[]>();
+        ReVerbOpenNlpConfFunction confFunc = getConfFunction();
+        for (ChunkedBinaryExtraction cbe : getExtractor().extract(chunked)) {
+            extractions.add(new String[] {
+                    cbe.getArgument1().toString(),
+                    cbe.getArgument1().getRange().toString(),
+                    cbe.getRelation().toString(),
+                    cbe.getRelation().getRange().toString(),
+                    cbe.getArgument2().toString(),
+                    cbe.getArgument2().getRange().toString(),
+                    String.valueOf(confFunc.getConf(cbe))});
+        }
+        if (cache != null)
+            cache.put(sentence, chunked, extractions);
+        return extractions;
+    }
+}
@@ -0,0 +1,378 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.stream.JsonReader;
+
+/**
+ * Keeps the extractions of every day in columns on disk, so analytics can
+ * read just the fields they need instead of parsing the extracted data
+ * again.
+ *
+ * The store is partitioned by date and then by category, one directory
+ * each: dir/2012-06-01/Business/. A partition holds one row per extraction,
+ * in the order of the extracted data file, as these columns:
+ *
+ *  - confidence.col, the confidences packed as 8 byte doubles;
+ *  - arg1, relation and arg2: a .col file of 4 byte codes, one per row, and
+ *    a .dict file with the string of each code, in order of first use,
+ *    each a 4 byte length and its UTF-8 bytes.
+ *
+ * The category and date of a row are those of its partition, so a scan of
+ * confidence by category and date reads confidence.col and nothing else.
+ * All numbers are big-endian, as written by DataOutputStream.
+ *
+ * A day is written as a whole from its extracted data file, into a
+ * temporary directory that replaces the old partitions when it's complete.
+ */
+public class ExtractionStore {
+
+    /** Names of the string columns. */
+    public static final String ARG1 = "arg1";
+    public static final String RELATION = "relation";
+    public static final String ARG2 = "arg2";
+
+    private static final String[] STRING_COLUMNS = {ARG1, RELATION, ARG2};
+    private static final String CONFIDENCE_FILE = "confidence.col";
+    private static final String CODE_SUFFIX = ".col";
+    private static final String DICTIONARY_SUFFIX = ".dict";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String ENCODE = "UTF-8";
+
+    private final File dir;
+
+    /** @param dir the directory of the store; created when written to. */
+    public ExtractionStore(File dir) {
+        this.dir = dir;
+    }
+
+    /** @return true if the store has the partitions of date. */
+    public boolean has(String date) {
+        return new File(dir, date).isDirectory();
+    }
+
+    /** @return the dates in the store, oldest first. */
+    public List<String> getDates() {
+        List<String> dates = new ArrayList<String>();
+        String[] names = dir.list();
+        if (names == null)
+            return dates;
+        for (String name : names) {
+            if (!name.endsWith(TEMP_SUFFIX) && new File(dir, name).isDirectory())
+                dates.add(name);
+        }
+        Collections.sort(dates);
+        return dates;
+    }
+
+    /**
+     * @param category the category, in any case; null for all.
+     * @param startDate the first date, "yyyy-MM-dd"; null for all time.
+     * @param endDate the last date; null for all time.
+     * @return the partitions of category between the dates, oldest first.
+     */
+    public List<Partition> getPartitions(String category, String startDate,
+            String endDate) {
+        FormatFilter filter = new FormatFilter(category, startDate, endDate, -1);
+        List<Partition> partitions = new ArrayList<Partition>();
+        for (String date : getDates()) {
+            if (!filter.acceptsDate(date))
+                continue;
+            String[] categories = new File(dir, date).list();
+            if (categories == null)
+                continue;
+            Arrays.sort(categories);
+            for (String name : categories) {
+                if (filter.acceptsCategory(name))
+                    partitions.add(new Partition(date, name,
+                            new File(new File(dir, date), name)));
+            }
+        }
+        return partitions;
+    }
+
+    /**
+     * Replaces the partitions of date with the extractions of
+     * extractedFile, which may be in any of the data formats.
+     * @throws IOException if the file can't be read or the store written;
+     *                     the old partitions of date are then kept.
+     */
+    void write(String date, File extractedFile) throws IOException {
+        final File temp = new File(dir, date + TEMP_SUFFIX);
+        delete(temp);
+        if (!temp.mkdirs())
+            throw new IOException("Can't create " + temp + ".");
+
+        final Map<String, PartitionWriter> writers =
+                new HashMap<String, PartitionWriter>();
+        NewsRecordReader in = new NewsRecordReader(extractedFile);
+        try {
+            NewsRecordReader.ArticleHandler handler =
+                    new NewsRecordReader.ArticleHandler() {
+                public void read(Long id, JsonReader article) throws IOException {
+                    String category = null;
+                    List<Object[]> rows = new ArrayList<Object[]>();
+                    article.beginObject();
+                    while (article.hasNext()) {
+                        String name = article.nextName();
+                        if (name.equals("category"))
+                            category = article.nextString();
+                        else if (name.equals("extractions"))
+                            readRows(article, rows);
+                        else
+                            article.skipValue();
+                    }
+                    article.endObject();
+                    if (category == null || category.length() == 0
+                            || category.startsWith(".")
+                            || category.indexOf('/') >= 0
+                            || category.indexOf(File.separatorChar) >= 0)
+                        throw new IOException("Bad category in article " + id
+                                + ": " + category);
+
+                    PartitionWriter writer = writers.get(category);
+                    if (writer == null) {
+                        writer = new PartitionWriter(new File(temp, category));
+                        writers.put(category, writer);
+                    }
+                    for (Object[] row : rows)
+                        writer.add(row);
+                }
+            };
+            while (in.next(handler))
+                ;
+        } finally {
+            in.close();
+            IOException failure = null;
+            for (PartitionWriter writer : writers.values()) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null)
+                throw failure;
+        }
+
+        File target = new File(dir, date);
+        delete(target);
+        if (!temp.renameTo(target))
+            throw new IOException("Can't move " + temp + " to " + target + ".");
+    }
+
+    /*
+     * Adds a row, {arg1, relation, arg2, confidence}, for each extraction
+     * of the array article is at.
+     */
+    private static void readRows(JsonReader article, List<Object[]> rows)
+            throws IOException {
+        article.beginArray();
+        while (article.hasNext()) {
+            Object[] row = new Object[STRING_COLUMNS.length + 1];
+            article.beginObject();
+            while (article.hasNext()) {
+                String name = article.nextName();
+                int column = Arrays.asList(STRING_COLUMNS).indexOf(name);
+                if (column >= 0)
+                    row[column] = article.nextString();
+                else if (name.equals("confidence"))
+                    // written as a string, which nextDouble parses
+                    row[STRING_COLUMNS.length] = article.nextDouble();
+                else
+                    article.skipValue();
+            }
+            article.endObject();
+            for (Object field : row) {
+                if (field == null)
+                    throw new IOException("Extraction without every column.");
+            }
+            rows.add(row);
+        }
+        article.endArray();
+    }
+
+    /* Deletes file, and everything in it if it is a directory. */
+    static void delete(File file) throws IOException {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children)
+                delete(child);
+        }
+        if (file.exists() && !file.delete())
+            throw new IOException("Can't delete " + file + ".");
+    }
+
+    /* Writes the columns of one partition as rows are added. */
+    private static class PartitionWriter {
+
+        private final File dir;
+        private final DataOutputStream confidence;
+        private final DataOutputStream[] codes;
+        /** string -> its code, for each string column. */
+        private final List<Map<String, Integer>> dictionaries;
+
+        PartitionWriter(File dir) throws IOException {
+            if (!dir.mkdirs())
+                throw new IOException("Can't create " + dir + ".");
+            this.dir = dir;
+            confidence = open(new File(dir, CONFIDENCE_FILE));
+            codes = new DataOutputStream[STRING_COLUMNS.length];
+            dictionaries = new ArrayList<Map<String, Integer>>();
+            for (int i = 0; i < STRING_COLUMNS.length; i++) {
+                codes[i] = open(new File(dir, STRING_COLUMNS[i] + CODE_SUFFIX));
+                dictionaries.add(new LinkedHashMap<String, Integer>());
+            }
+        }
+
+        void add(Object[] row) throws IOException {
+            for (int i = 0; i < STRING_COLUMNS.length; i++) {
+                Map<String, Integer> dictionary = dictionaries.get(i);
+                Integer code = dictionary.get(row[i]);
+                if (code == null) {
+                    code = dictionary.size();
+                    dictionary.put((String) row[i], code);
+                }
+                codes[i].writeInt(code);
+            }
+            confidence.writeDouble((Double) row[STRING_COLUMNS.length]);
+        }
+
+        /* Closes the columns and writes the dictionaries. */
+        void close() throws IOException {
+            confidence.close();
+            for (DataOutputStream column : codes)
+                column.close();
+            for (int i = 0; i < STRING_COLUMNS.length; i++) {
+                DataOutputStream out = open(new File(dir, STRING_COLUMNS[i]
+                        + DICTIONARY_SUFFIX));
+                try {
+                    for (String string : dictionaries.get(i).keySet()) {
+                        byte[] bytes = string.getBytes(ENCODE);
+                        out.writeInt(bytes.length);
+                        out.write(bytes);
+                    }
+                } finally {
+                    out.close();
+                }
+            }
+        }
+
+        private static DataOutputStream open(File file) throws IOException {
+            return new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(file)));
+        }
+    }
+
+    /**
+     * The extractions of one category on one date. Each read method reads
+     * only the files of its column.
+     */
+    public static class Partition {
+
+        private final String date;
+        private final String category;
+        private final File dir;
+
+        private Partition(String date, String category, File dir) {
+            this.date = date;
+            this.category = category;
+            this.dir = dir;
+        }
+
+        /** @return the date of the partition, "yyyy-MM-dd". */
+        public String getDate() {
+            return date;
+        }
+
+        /** @return the category of the partition, as in the data. */
+        public String getCategory() {
+            return category;
+        }
+
+        /** @return the number of rows, from the length of one column. */
+        public int size() {
+            return (int) (new File(dir, CONFIDENCE_FILE).length() / 8);
+        }
+
+        /** @return the confidence of every row. */
+        public double[] readConfidence() throws IOException {
+            double[] values = new double[size()];
+            ByteBuffer.wrap(readFile(new File(dir, CONFIDENCE_FILE)))
+                    .asDoubleBuffer().get(values);
+            return values;
+        }
+
+        /**
+         * @param column ARG1, RELATION or ARG2.
+         * @return the code of column for every row; the dictionary gives
+         *         the string of each code.
+         */
+        public int[] readCodes(String column) throws IOException {
+            int[] values = new int[size()];
+            ByteBuffer.wrap(readFile(new File(dir, checkColumn(column)
+                    + CODE_SUFFIX))).asIntBuffer().get(values);
+            return values;
+        }
+
+        /** @return the strings of column, indexed by code. */
+        public String[] readDictionary(String column) throws IOException {
+            List<String> strings = new ArrayList<String>();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(new File(dir, checkColumn(column)
+                            + DICTIONARY_SUFFIX))));
+            try {
+                while (in.available() > 0) {
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    strings.add(new String(bytes, ENCODE));
+                }
+            } finally {
+                in.close();
+            }
+            return strings.toArray(new String[strings.size()]);
+        }
+
+        /** @return the string of column for every row. */
+        public String[] readStrings(String column) throws IOException {
+            String[] dictionary = readDictionary(column);
+            int[] codes = readCodes(column);
+            String[] values = new String[codes.length];
+            for (int i = 0; i < codes.length; i++)
+                values[i] = dictionary[codes[i]];
+            return values;
+        }
+
+        private static String checkColumn(String column) {
+            if (!Arrays.asList(STRING_COLUMNS).contains(column))
+                throw new IllegalArgumentException("No column " + column);
+            return column;
+        }
+
+        private static byte[] readFile(File file) throws IOException {
+            byte[] bytes = new byte[(int) file.length()];
+            DataInputStream in = new DataInputStream(new FileInputStream(file));
+            try {
+                in.readFully(bytes);
+            } finally {
+                in.close();
+            }
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Downloads RSS feeds on a fixed pool of threads. The number of downloads
+ * running at once is capped globally and, separately, per host, so a single
+ * slow site can't hold on to the whole pool.
+ *
+ * If a FetchCache is given, feeds that were fetched before are requested
+ * conditionally and served from the cache when the server answers 304.
+ *
+ * A FeedFetcher is good for one run: submit the work for every feed, then
+ * call awaitCompletion() to wait for it and log the run summary.
+ */
+public class FeedFetcher {
+
+    private static final int HTTP_OK = 200;
+    private static final int HTTP_NOT_MODIFIED = 304;
+
+    private final Logger logger;
+
+    /** Runs one task per feed. */
+    private final ExecutorService pool;
+
+    /** Runs the single page downloads that a feed task fans out. */
+    private final ExecutorService requestPool;
+
+    /** Bounds the number of open connections across all hosts. */
+    private final Semaphore connectionPermits;
+
+    /** Bounds the number of open connections to each host. */
+    private final Map<String, Semaphore> hostPermits;
+    private final int maxConnectionsPerHost;
+
+    /** Holds the last response for each url; may be null. */
+    private final FetchCache cache;
+
+    private final List<Future<?>> pending;
+
+    /** Time each feed took to download, keyed by feed name. */
+    private final Map<String, Long> feedLatencies;
+    private final AtomicLong bytesFetched;
+    private final long startTime;
+
+    /**
+     * @param maxConnections the most feeds downloaded at the same time.
+     * @param maxConnectionsPerHost the most downloads from a single host
+     *                              at the same time.
+     * @param cache used for conditional requests; if null, every page is
+     *              downloaded in full.
+     */
+    public FeedFetcher(int maxConnections, int maxConnectionsPerHost,
+            FetchCache cache) {
+        if (maxConnections < 1 || maxConnectionsPerHost < 1)
+            throw new IllegalArgumentException("Connection limits must be positive.");
+
+        logger = LoggerFactory.getLogger(FeedFetcher.class);
+        pool = Executors.newFixedThreadPool(maxConnections);
+        requestPool = Executors.newFixedThreadPool(maxConnections);
+        connectionPermits = new Semaphore(maxConnections);
+        hostPermits = new HashMap<String, Semaphore>();
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.cache = cache;
+        pending = new ArrayList<Future<?>>();
+        feedLatencies = new HashMap<String, Long>();
+        bytesFetched = new AtomicLong();
+        startTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Schedules the download of one feed on the pool. The time the task
+     * takes is reported as the latency of the feed in the run summary.
+     * @param feedName the name used for the feed in the run summary.
+     * @param task downloads the feed and stores it.
+     */
+    public void submit(final String feedName, final Runnable task) {
+        pending.add(pool.submit(new Runnable() {
+            public void run() {
+                long start = System.currentTimeMillis();
+                try {
+                    task.run();
+                } finally {
+                    recordLatency(feedName, System.currentTimeMillis() - start);
+                }
+            }
+        }));
+    }
+
+    /**
+     * Downloads the page at the given url, waiting for a free connection to
+     * its host first. If the page is in the cache and hasn't changed, the
+     * cached copy is returned instead.
+     * @throws IOException if the page can't be downloaded.
+     */
+    public FetchedPage fetch(String url) throws IOException {
+        Semaphore hostPermit = getHostPermit(url);
+        hostPermit.acquireUninterruptibly();
+        connectionPermits.acquireUninterruptibly();
+        try {
+            FetchCache.Entry cached = (cache == null) ? null : cache.get(url);
+            Connection conn = Jsoup.connect(url);
+            if (cached != null) {
+                // a 304 has no content type and counts as an http error
+                conn.ignoreHttpErrors(true).ignoreContentType(true);
+                if (cached.etag != null)
+                    conn.header("If-None-Match", cached.etag);
+                if (cached.lastModified != null)
+                    conn.header("If-Modified-Since", cached.lastModified);
+            }
+
+            Connection.Response response = conn.execute();
+            if (cached != null) {
+                if (response.statusCode() == HTTP_NOT_MODIFIED) {
+                    cache.recordHit();
+                    return new FetchedPage(url, cached.body);
+                }
+                if (response.statusCode() != HTTP_OK)
+                    throw new IOException(response.statusCode()
+                            + " error fetching " + url);
+            }
+
+            bytesFetched.addAndGet(response.bodyAsBytes().length);
+            FetchedPage page = new FetchedPage(url, response.parse());
+            if (cache != null) {
+                cache.recordMiss();
+                cache.put(url, response.header("ETag"),
+                        response.header("Last-Modified"), page.getBody());
+            }
+            return page;
+        } finally {
+            connectionPermits.release();
+            hostPermit.release();
+        }
+    }
+
+    /**
+     * Downloads all the given pages concurrently.
+     * @return the parsed pages, in the same order as urls.
+     * @throws IOException if any of the pages can't be downloaded.
+     */
+    public List<FetchedPage> fetchAll(List<String> urls) throws IOException {
+        List<Future<FetchedPage>> futures = new ArrayList<Future<FetchedPage>>();
+        for (final String url : urls) {
+            futures.add(requestPool.submit(new Callable<FetchedPage>() {
+                public FetchedPage call() throws IOException {
+                    return fetch(url);
+                }
+            }));
+        }
+
+        List<FetchedPage> pages = new ArrayList<FetchedPage>();
+        try {
+            for (Future<FetchedPage> future : futures) {
+                pages.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while fetching.", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to fetch page.", e.getCause());
+        } finally {
+            // nothing left to wait for if one of the pages failed
+            for (Future<FetchedPage> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return pages;
+    }
+
+    /**
+     * Blocks until every submitted feed has been fetched, shuts the pool down
+     * and logs the run summary.
+     */
+    public void awaitCompletion() {
+        for (Future<?> future : pending) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                logger.error("awaitCompletion(): Feed task failed.");
+                logger.error("{}", e.getCause());
+            }
+        }
+        pool.shutdown();
+        requestPool.shutdown();
+        logSummary();
+    }
+
+    /* Returns the semaphore that guards connections to the url's host. */
+    private Semaphore getHostPermit(String url) throws MalformedURLException {
+        String host = new URL(url).getHost();
+        synchronized (hostPermits) {
+            Semaphore permit = hostPermits.get(host);
+            if (permit == null) {
+                permit = new Semaphore(maxConnectionsPerHost);
+                hostPermits.put(host, permit);
+            }
+            return permit;
+        }
+    }
+
+    private void recordLatency(String feedName, long millis) {
+        synchronized (feedLatencies) {
+            feedLatencies.put(feedName, millis);
+        }
+    }
+
+    /* Logs wall time, bytes fetched and the latency of each feed, slowest first. */
+    private void logSummary() {
+        List<Map.Entry<String, Long>> latencies;
+        synchronized (feedLatencies) {
+            latencies = new ArrayList<Map.Entry<String, Long>>(
+                    feedLatencies.entrySet());
+        }
+        Collections.sort(latencies, new Comparator<Map.Entry<String, Long>>() {
+            public int compare(Map.Entry<String, Long> e1,
+                    Map.Entry<String, Long> e2) {
+                return e2.getValue().compareTo(e1.getValue());
+            }
+        });
+
+        Object[] params = { latencies.size(),
+                System.currentTimeMillis() - startTime, bytesFetched.get() };
+        logger.info("logSummary(): Fetched {} feeds in {} ms, {} bytes.", params);
+        if (cache != null) {
+            logger.info("logSummary(): Fetch cache: {} hits, {} misses.",
+                    cache.getHits(), cache.getMisses());
+        }
+        for (Map.Entry<String, Long> latency : latencies) {
+            logger.info("logSummary(): {}: {} ms", latency.getKey(),
+                    latency.getValue());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * When each feed is next due to be fetched, for a process that fetches
+ * feeds at intervals of their own. Every feed is due as soon as it is
+ * added; once taken, it is due again an interval after the time it was
+ * taken at.
+ *
+ * Times are milliseconds, as from System.currentTimeMillis; the caller
+ * passes the current time in, so a schedule never looks at the clock.
+ */
+class FeedSchedule {
+
+    /** Feed name -> its interval. */
+    private final Map<String, Long> intervals;
+
+    /** Feed name -> the time it is next due. */
+    private final Map<String, Long> due;
+
+    FeedSchedule() {
+        intervals = new LinkedHashMap<String, Long>();
+        due = new LinkedHashMap<String, Long>();
+    }
+
+    /**
+     * Adds feed, due at once.
+     * @param interval the time between two fetches of feed, more than 0.
+     */
+    void add(String feed, long interval) {
+        if (interval <= 0)
+            throw new IllegalArgumentException("No interval " + interval
+                    + " for " + feed);
+        intervals.put(feed, interval);
+        due.put(feed, Long.MIN_VALUE);
+    }
+
+    /**
+     * @return the feeds due at now, in the order they were added; each is
+     *         due again its interval after now.
+     */
+    List<String> takeDue(long now) {
+        List<String> feeds = new ArrayList<String>();
+        for (Map.Entry<String, Long> feed : due.entrySet()) {
+            if (feed.getValue() <= now) {
+                feeds.add(feed.getKey());
+                feed.setValue(now + intervals.get(feed.getKey()));
+            }
+        }
+        return feeds;
+    }
+
+    /** @return the time the next feed is due; Long.MAX_VALUE if none. */
+    long nextDue() {
+        long next = Long.MAX_VALUE;
+        for (long time : due.values())
+            next = Math.min(next, time);
+        return next;
+    }
+}
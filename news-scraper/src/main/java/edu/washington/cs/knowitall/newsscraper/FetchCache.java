@@ -0,0 +1,218 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * Keeps the last response for each feed url on disk, so the next run can ask
+ * the server whether the feed changed (If-None-Match/If-Modified-Since) and
+ * reuse the stored body when it didn't (304 Not Modified).
+ *
+ * Each url is stored as a small JSON file named after the MD5 of the url.
+ * Entries are not evicted as they are used; prune deletes the ones of
+ * feeds that left the config and of pages no longer fetched.
+ */
+public class FetchCache {
+
+    private final String ENCODE = "UTF-8";
+    private final String ENTRY_SUFFIX = ".json";
+    private final String TMP_SUFFIX = ".tmp";
+
+    private final Logger logger;
+    private final Gson gson;
+
+    /** Where the entries are stored - ends in "/". */
+    private final String cacheDir;
+
+    private final AtomicInteger hits;
+    private final AtomicInteger misses;
+
+    /**
+     * @param cacheDir the directory to keep the entries in; created if it
+     *                 doesn't exist.
+     */
+    public FetchCache(String cacheDir) {
+        logger = LoggerFactory.getLogger(FetchCache.class);
+        gson = new Gson();
+        if (!cacheDir.endsWith("/"))
+            cacheDir += "/";
+        this.cacheDir = cacheDir;
+        new File(cacheDir).mkdirs();
+        hits = new AtomicInteger();
+        misses = new AtomicInteger();
+    }
+
+    /**
+     * @return the stored response for the url, or null if there is none or
+     *         it can't be read.
+     */
+    public Entry get(String url) {
+        File entryFile = getEntryFile(url);
+        if (!entryFile.exists())
+            return null;
+
+        try {
+            BufferedReader in = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(entryFile), ENCODE));
+            Entry entry;
+            try {
+                entry = gson.fromJson(in, Entry.class);
+            } finally {
+                in.close();
+            }
+            // guard against an MD5 collision or a broken file
+            if (entry == null || !url.equals(entry.url) || entry.body == null)
+                return null;
+            // a used entry is not stale, see prune
+            entryFile.setLastModified(System.currentTimeMillis());
+            return entry;
+        } catch (IOException e) {
+            logger.error("get(): Failed to read cache entry for {}", url);
+            return null;
+        } catch (JsonParseException e) {
+            logger.error("get(): Broken cache entry for {}", url);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the response for the url, replacing any previous one. Responses
+     * without an ETag or Last-Modified header can't be revalidated, so they
+     * are not stored.
+     */
+    public void put(String url, String etag, String lastModified, String body) {
+        if (etag == null && lastModified == null)
+            return;
+
+        Entry entry = new Entry();
+        entry.url = url;
+        entry.etag = etag;
+        entry.lastModified = lastModified;
+        entry.body = body;
+
+        // write to a temporary file first so readers never see half an entry
+        File entryFile = getEntryFile(url);
+        File tmpFile = new File(entryFile.getPath() + TMP_SUFFIX);
+        try {
+            BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(tmpFile), ENCODE));
+            try {
+                gson.toJson(entry, out);
+            } finally {
+                out.close();
+            }
+            if (!tmpFile.renameTo(entryFile)) {
+                entryFile.delete();
+                if (!tmpFile.renameTo(entryFile))
+                    logger.error("put(): Failed to store cache entry for {}", url);
+            }
+        } catch (IOException e) {
+            logger.error("put(): Failed to write cache entry for {}", url);
+            tmpFile.delete();
+        }
+    }
+
+    /**
+     * Deletes the entries of urls that are not in keepUrls and were neither
+     * stored nor read for maxAgeMillis: those of feeds removed from the
+     * config, and of related articles that left their feed. Temporary files
+     * left by a failed put are deleted once as old.
+     * @param keepUrls the urls whose entries are kept however old, say
+     *                 those of every configured feed.
+     * @return the number of files deleted.
+     */
+    public int prune(Collection<String> keepUrls, long maxAgeMillis) {
+        File[] files = new File(cacheDir).listFiles();
+        if (files == null) {
+            logger.error("prune(): Can't list {}", cacheDir);
+            return 0;
+        }
+        Set<String> keep = new HashSet<String>();
+        for (String url : keepUrls)
+            keep.add(getEntryFile(url).getName());
+
+        long oldest = System.currentTimeMillis() - maxAgeMillis;
+        int deleted = 0;
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.endsWith(ENTRY_SUFFIX) && !name.endsWith(TMP_SUFFIX))
+                continue;
+            if (keep.contains(name) || file.lastModified() >= oldest)
+                continue;
+            if (file.delete())
+                deleted++;
+            else
+                logger.error("prune(): Failed to delete {}", file);
+        }
+        if (deleted > 0)
+            logger.info("prune(): Deleted {} stale entries.", deleted);
+        return deleted;
+    }
+
+    /** Counts a response that was served from the cache. */
+    public void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    /** Counts a response that had to be downloaded in full. */
+    public void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    /** @return the number of responses served from the cache. */
+    public int getHits() {
+        return hits.get();
+    }
+
+    /** @return the number of responses that had to be downloaded in full. */
+    public int getMisses() {
+        return misses.get();
+    }
+
+    private File getEntryFile(String url) {
+        return new File(cacheDir + md5(url) + ENTRY_SUFFIX);
+    }
+
+    private String md5(String str) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("MD5");
+            byte[] digest = md.digest(str.getBytes(ENCODE));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available.", e);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(ENCODE + " is not available.", e);
+        }
+    }
+
+    /** A stored response. */
+    public static class Entry {
+        public String url;
+        public String etag;
+        public String lastModified;
+        public String body;
+    }
+}
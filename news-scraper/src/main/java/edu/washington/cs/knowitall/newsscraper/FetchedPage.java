@@ -0,0 +1,55 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+/**
+ * A page returned by FeedFetcher. The body is what gets stored in the raw
+ * data directory; the parsed document is only built when someone asks for
+ * it, so pages served from the FetchCache are not parsed again just to be
+ * written out.
+ */
+public class FetchedPage {
+
+    private final String url;
+    private final String body;
+    private final boolean fromCache;
+    private Document doc;
+
+    /* A freshly downloaded page. */
+    FetchedPage(String url, Document doc) {
+        this.url = url;
+        this.doc = doc;
+        this.body = doc.toString();
+        this.fromCache = false;
+    }
+
+    /* A page served from the cache. */
+    FetchedPage(String url, String body) {
+        this.url = url;
+        this.body = body;
+        this.fromCache = true;
+    }
+
+    /** @return the url the page was fetched from. */
+    public String getUrl() {
+        return url;
+    }
+
+    /** @return the page as html. */
+    public String getBody() {
+        return body;
+    }
+
+    /** @return true if the server said the page hadn't changed. */
+    public boolean isFromCache() {
+        return fromCache;
+    }
+
+    /** @return the parsed page; parsed on the first call for cached pages. */
+    public synchronized Document getDocument() {
+        if (doc == null)
+            doc = Jsoup.parse(body, url);
+        return doc;
+    }
+}
@@ -0,0 +1,53 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+/**
+ * The category, date window and confidence threshold of a formatting run,
+ * checked as early as possible: a file whose date is out of the window is
+ * never opened, an article out of the window or of another category has
+ * its extractions skipped unread, and an extraction under the threshold is
+ * dropped before anything is built from it.
+ *
+ * Dates are compared as "yyyy-MM-dd" strings, which sort by date.
+ */
+class FormatFilter {
+
+    private final String category;
+    private final String startDate;
+    private final String endDate;
+    private final double confidenceThreshold;
+
+    /**
+     * @param category the category to keep, in any case; null for all.
+     * @param startDate the first date to keep; null for all time.
+     * @param endDate the last date to keep; null for all time.
+     * @param confidenceThreshold keep extractions with a greater
+     *                            confidence; -1 for all.
+     */
+    FormatFilter(String category, String startDate, String endDate,
+            double confidenceThreshold) {
+        if ((startDate == null) != (endDate == null))
+            throw new IllegalArgumentException("Need both ends of the window.");
+        this.category = category;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.confidenceThreshold = confidenceThreshold;
+    }
+
+    /** @return true if date, "yyyy-MM-dd", is in the window. */
+    boolean acceptsDate(String date) {
+        if (startDate == null)
+            return true;
+        return date != null && date.compareTo(startDate) >= 0
+                && date.compareTo(endDate) <= 0;
+    }
+
+    /** @return true if the articles of category are kept. */
+    boolean acceptsCategory(String articleCategory) {
+        return category == null || category.equalsIgnoreCase(articleCategory);
+    }
+
+    /** @return true if an extraction with confidence is kept. */
+    boolean acceptsConfidence(double confidence) {
+        return confidenceThreshold == -1 || confidence > confidenceThreshold;
+    }
+}
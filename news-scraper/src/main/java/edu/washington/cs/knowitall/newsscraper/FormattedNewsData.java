@@ -1,5 +1,7 @@
 package edu.washington.cs.knowitall.newsscraper;
 
+import java.io.IOException;
+
 public class FormattedNewsData {
     
     public Long id;
@@ -31,6 +33,26 @@ public class FormattedNewsData {
         return sb.toString();
     }
     
+    /**
+     * Writes this object as a json string to out. id and confidence are
+     * written as numbers, the other fields as strings.
+     * @param out where to write the json
+     * @throws IOException if out fails
+     */
+    public void writeJson(Appendable out) throws IOException {
+        out.append("{\"id\":").append(String.valueOf(id));
+        NewsData.writeField(out, "url", url, true);
+        NewsData.writeField(out, "title", title, true);
+        NewsData.writeField(out, "sentence", sentence, true);
+        NewsData.writeField(out, "date", date, true);
+        NewsData.writeField(out, "arg1", arg1, true);
+        NewsData.writeField(out, "relation", relation, true);
+        NewsData.writeField(out, "arg2", arg2, true);
+        NewsData.writeField(out, "category", category, true);
+        out.append(", \"confidence\":").append(String.valueOf(confidence));
+        out.append('}');
+    }
+
     /*
      * get rid of \t in a string
      */
@@ -1,25 +1,14 @@
 package edu.washington.cs.knowitall.newsscraper;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
-
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
 
 public class GoogleRssScraper extends RssScraper {
 
@@ -29,7 +18,17 @@ public class GoogleRssScraper extends RssScraper {
     public GoogleRssScraper(Calendar cal, Config con) {
         super(cal, con);
 
-        cleaner = new ArticleTextCleaner();
+        String publishersFile = con.getPublishersFile();
+        if (publishersFile == null) {
+            cleaner = new ArticleTextCleaner();
+        } else {
+            try {
+                cleaner = new ArticleTextCleaner(publishersFile);
+            } catch (IOException e) {
+                throw new IllegalArgumentException(
+                        "Bad publishers file: " + publishersFile, e);
+            }
+        }
     }
 
     // constructs google-specific urls given the correct category and feed
@@ -38,157 +37,91 @@ public class GoogleRssScraper extends RssScraper {
     }
 
     @Override
-    public void fetchData() {
-        logger.info("fetchData(): Start fetching data.");
-
-        outputLocation = makeDailyDirectory(config.getRootDir());
-        rawDataDir = outputLocation + "raw_data/";
-
-        categories = config.getCategories();
-        rssCategoryToFeeds = new HashMap<String, List<String>>();
-        for (String category: categories) {
-            rssCategoryToFeeds.put(category, new ArrayList<String>());
+    protected void fetchFeed(String categoryName, String feedName)
+            throws Exception {
+        String parentUrl = constructUrl(categoryName, feedName);
+        // parentPage is the rss feed for the larger topic
+        FetchedPage parentPage = fetcher.fetch(parentUrl);
+        // the related articles of an unchanged feed are the stored ones
+        if (isStoredToday(categoryName, feedName, parentPage))
+            return;
+
+        List<String> relatedUrls = new ArrayList<String>();
+        for (Element art: parentPage.getDocument().getElementsByTag("item")) {
+            String relatedUrl = getRelatedArticleUrl(art);
+            if (relatedUrl == null) continue;
+            relatedUrls.add(relatedUrl);
         }
 
-        JsonObject rssList = config.getJsonFeeds();
-        for (String category: categories) {
-            List<String> feedsToFill = rssCategoryToFeeds.get(category);
-            JsonArray feedSource = rssList.get(category).getAsJsonArray();
-
-            for (JsonElement feed: feedSource) {
-                feedsToFill.add(feed.getAsString());
-            }
+        // fetch the related articles concurrently, but keep them in item
+        // order in the raw file
+        StringBuilder content = new StringBuilder(parentPage.getBody());
+        for (FetchedPage artPage: fetcher.fetchAll(relatedUrls)) {
+            content.append(artPage.getBody());
         }
 
-        File rawDir = new File(rawDataDir);
-        rawDir.mkdirs();
-
-        for (String categoryName: categories) {
-            List<String> feeds = rssCategoryToFeeds.get(categoryName);
-            for (String feedName: feeds) {
-                // want to try a total of 3 times
-                for (int i = 0; i < 3; i++) {
-                    try {
-                        String parentUrl = constructUrl(categoryName,
-                                                        feedName);
-                        // parentDoc is the rss feed for the larger topic
-                        Document parentDoc = Jsoup.connect(parentUrl).get();
-
-                        // write fetched xml to local data:
-                        // .../rawdata/DATE_CATEGORY_FEED.html
-                        BufferedWriter out =
-                            new BufferedWriter(
-                            new OutputStreamWriter(
-                            new FileOutputStream(
-                            new File(rawDataDir + dateString + "_" +
-                                categoryName + "_" + feedName + ".html"),
-                                true), ENCODE));
-                        out.write(parentDoc.toString());
-
-                        for (Element art: parentDoc.getElementsByTag("item")) {
-                            String relatedUrl = getRelatedArticleUrl(art);
-                            if (relatedUrl == null) continue;
-
-                            Document artDoc = Jsoup.connect(relatedUrl).get();
-                            out.write(artDoc.toString());
-                        }
-
-                        out.close();
-                        logger.info(
-                            "fetchData(): " + "Fetched {}: {} successfully",
-                            categoryName, feedName);
-                        break;
-
-                    // same catch logic for IOException and SocketTimeoutEx.
-                    } catch (Exception e) {
-                        if (i < 2) continue;
-                        // otherwise this is the third failed try: log error
-                        logger.error("fetchData(): Failed to download: {}_{}",
-                            categoryName, feedName);
-                        e.printStackTrace();
-                    }
-                }
-            }
-        }
-        logger.info("fetchData(): End fetching.");
+        // write fetched xml to local data:
+        // .../rawdata/DATE_CATEGORY_FEED.html
+        writeRawData(categoryName, feedName, content.toString());
     }
 
-
     @Override
-    protected void processHtml(String dir, boolean processOnly) {
-        logger.info("processHtml(): Start processing HTML.");
-
-        if (!dir.endsWith(FOLDER_PATH_SEPERATOR))
-            dir = dir + FOLDER_PATH_SEPERATOR;
-
-        duplicateChecker = new HashSet<String>();
-        dataMap = new HashMap<String, NewsData>();
-
-        // files is a grab of all the files in the given dir.
-        File rawDataFile = new File(dir);
-        String[] files = rawDataFile.list();
-
-        // grab the date string for this folder.
-        if (processOnly && files.length > 0) {
-            String fileDate = getFileDate(files[0]);
-            if (fileDate != null)
-                dateString = fileDate;
-        }
-
-        for (String fileName : files) {
-            logger.info("processHtml(): Process {}", fileName);
-            int timeSeperatorPos = fileName.indexOf('_');
-            int catSeperatorPos = fileName.indexOf('_', timeSeperatorPos + 1);
-
-            String categoryName = fileName.substring(timeSeperatorPos + 1,
-                                                     catSeperatorPos);
-            String rssName = fileName.substring(catSeperatorPos + 1,
-                                                fileName.indexOf('.'));
-
-            // read rss file from local disk
-            String fileContent = getFileContent(dir + fileName, ENCODE);
-
-            Document wholeHtml = Jsoup.parse(fileContent);
-
-            // each item contains a news article
-            Elements items = wholeHtml.getElementsByTag("item");
-            for (Element item : items) {
-                // make sure it's today's news
-                String pubdate = item.getElementsByTag("pubdate").first().text();
-                if (!checkDateMatch(pubdate) && !processOnly) continue;
-
-                // get news' title
-                Element titleEle = item.getElementsByTag("title").first();
-                String title = titleEle.text().trim();
-
-                // make sure no duplicate news
-                if (dataMap.containsKey(title)) continue;
-
-                Element desc = item.getElementsByTag("description").first();
-                desc = Jsoup.parse(StringEscapeUtils.unescapeHtml4(desc.toString()));
-
-                NewsData data = new NewsData(categoryName, rssName, title, dateString);
-
-                Element lh = desc.getElementsByClass("lh").first();
-                String descText = lh.getElementsByTag("font").get(2).text();
-                String publisher = lh.getElementsByTag("font").get(1).text();
-                String url = lh.getElementsByTag("a").first().absUrl("href");
-
-                data.source = publisher;
-                data.url = url;
-
-                descText = cleaner.clean(descText, publisher);
-                if (descText == null || descText.equals(""))
-                    continue;
-                if (descText.length() > sentenceMinimumLength
-                        && !duplicateChecker.contains(descText)) {
-                    duplicateChecker.add(descText);
-                    data.content = descText;
-                    dataMap.put(title, data);
-                }
+    protected List<ParsedItem> processFile(String dir, String fileName,
+            boolean processOnly) {
+        logger.info("processHtml(): Process {}", fileName);
+        List<ParsedItem> parsedItems = new ArrayList<ParsedItem>();
+
+        int timeSeperatorPos = fileName.indexOf('_');
+        int catSeperatorPos = fileName.indexOf('_', timeSeperatorPos + 1);
+
+        String categoryName = fileName.substring(timeSeperatorPos + 1,
+                                                 catSeperatorPos);
+        String rssName = fileName.substring(catSeperatorPos + 1,
+                                            fileName.indexOf('.'));
+
+        // stream the rss file from local disk, one item at a time
+        RssItemReader reader = openItemReader(dir + fileName);
+        if (reader == null)
+            return parsedItems;
+
+        // each item contains a news article
+        Element item;
+        while ((item = nextItem(reader)) != null) {
+            // make sure it's today's news
+            String pubdate = item.getElementsByTag("pubdate").first().text();
+            if (!checkDateMatch(pubdate) && !processOnly) continue;
+
+            // get news' title
+            Element titleEle = item.getElementsByTag("title").first();
+            String title = titleEle.text().trim();
+
+            // make sure no duplicate news
+            if (isKnownTitle(title)) continue;
+
+            Element desc = item.getElementsByTag("description").first();
+            desc = Jsoup.parse(StringEscapeUtils.unescapeHtml4(desc.toString()));
+
+            NewsData data = new NewsData(categoryName, rssName, title, dateString);
+
+            Element lh = desc.getElementsByClass("lh").first();
+            String descText = lh.getElementsByTag("font").get(2).text();
+            String publisher = lh.getElementsByTag("font").get(1).text();
+            String url = lh.getElementsByTag("a").first().absUrl("href");
+
+            data.source = publisher;
+            data.url = url;
+
+            descText = cleaner.clean(descText, publisher);
+            if (descText == null || descText.equals(""))
+                continue;
+            if (descText.length() > sentenceMinimumLength) {
+                ParsedItem parsed = new ParsedItem(data);
+                parsed.content = descText;
+                parsedItems.add(parsed);
             }
         }
-        logger.info("processHtml(): End processing HTML.");
+        reader.close();
+        return parsedItems;
 
         /*
         Collections.sort(publisherNames);
@@ -0,0 +1,84 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+
+/**
+ * Hands out article ids that are unique across runs, and across scrapers
+ * that run at the same time (Yahoo and Google on the same box), from one
+ * counter file that all of them share.
+ *
+ * The counter file holds two numbers, the first and the last id of the
+ * block reserved most recently; the idCount files written before this
+ * class have the same layout. A block is reserved under an exclusive lock
+ * on the file, so two processes never get overlapping ids, and the file
+ * is only read and written once per block rather than once per article.
+ *
+ * File locks are only as good as the file system's: keep the counter file
+ * on a local disk rather than a network mount.
+ */
+class IdAllocator {
+
+    private static final String ENCODE = "UTF-8";
+
+    private final File file;
+
+    /**
+     * @param file the counter file; made if it doesn't exist, in which case
+     *             ids start at 1.
+     */
+    IdAllocator(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Reserves count consecutive ids, so a caller can number a whole batch
+     * of articles with one visit to the counter file. Safe to call from any
+     * number of threads and processes.
+     * @return the first of them.
+     * @throws IOException if the counter file can't be read or written.
+     */
+    long reserve(int count) throws IOException {
+        if (count < 1)
+            throw new IllegalArgumentException("Need at least one id.");
+        // a JVM may hold only one lock on a file, so threads take turns
+        synchronized (IdAllocator.class) {
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                FileChannel channel = raf.getChannel();
+                FileLock lock = channel.lock();
+                try {
+                    long first = readLastId(raf) + 1;
+                    long last = first + count - 1;
+                    raf.setLength(0);
+                    raf.write((first + " " + last).getBytes(ENCODE));
+                    channel.force(true);
+                    return first;
+                } finally {
+                    lock.release();
+                }
+            } finally {
+                raf.close();
+            }
+        }
+    }
+
+    /* Returns the last id reserved, or 0 if the file is empty. */
+    private long readLastId(RandomAccessFile raf) throws IOException {
+        byte[] bytes = new byte[(int) raf.length()];
+        raf.seek(0);
+        raf.readFully(bytes);
+        String counts = new String(bytes, ENCODE).trim();
+        if (counts.length() == 0)
+            return 0;
+        String[] fields = counts.split("\\s+");
+        try {
+            return Long.parseLong(fields[fields.length - 1]);
+        } catch (NumberFormatException e) {
+            throw new IOException("Bad id count in " + file + ": " + counts);
+        }
+    }
+}
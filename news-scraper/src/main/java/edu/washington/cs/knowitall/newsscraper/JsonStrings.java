@@ -0,0 +1,86 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import java.io.IOException;
+
+/**
+ * Writes json string literals. The output files are built by hand rather
+ * than with a JSON library (see the README), so every string value has to
+ * be escaped here: quotes, backslashes and control characters. Everything
+ * else, including non-ascii text, is written as is.
+ */
+public class JsonStrings {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private JsonStrings() {
+    }
+
+    /**
+     * Writes str to out as a quoted json string. A null str is written as
+     * the empty string.
+     */
+    public static void appendQuoted(Appendable out, String str)
+            throws IOException {
+        out.append('"');
+        if (str != null) {
+            int start = 0;
+            int length = str.length();
+            for (int i = 0; i < length; i++) {
+                char c = str.charAt(i);
+                String escaped = escape(c);
+                if (escaped == null)
+                    continue;
+                out.append(str, start, i);
+                out.append(escaped);
+                start = i + 1;
+            }
+            out.append(str, start, length);
+        }
+        out.append('"');
+    }
+
+    /** @return str as a quoted json string. */
+    public static String quote(String str) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            appendQuoted(sb, str);
+        } catch (IOException e) {
+            // StringBuilder doesn't throw
+            throw new IllegalStateException(e);
+        }
+        return sb.toString();
+    }
+
+    /* Returns the escape sequence for c, or null if c needs none. */
+    private static String escape(char c) {
+        switch (c) {
+        case '"':
+            return "\\\"";
+        case '\\':
+            return "\\\\";
+        case '\n':
+            return "\\n";
+        case '\r':
+            return "\\r";
+        case '\t':
+            return "\\t";
+        case '\b':
+            return "\\b";
+        case '\f':
+            return "\\f";
+        case '\u2028':
+        case '\u2029':
+            // valid json, but they break javascript readers like the web tier
+            return unicodeEscape(c);
+        default:
+            if (c < 0x20)
+                return unicodeEscape(c);
+            return null;
+        }
+    }
+
+    private static String unicodeEscape(char c) {
+        return "\\u" + HEX[(c >> 12) & 0xf] + HEX[(c >> 8) & 0xf]
+                + HEX[(c >> 4) & 0xf] + HEX[c & 0xf];
+    }
+}
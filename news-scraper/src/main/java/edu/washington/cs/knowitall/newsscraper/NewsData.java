@@ -1,6 +1,6 @@
 package edu.washington.cs.knowitall.newsscraper;
 
-import java.lang.reflect.Field;
+import java.io.IOException;
 
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -43,18 +43,18 @@ public class NewsData {
     public JSONObject toJSONObject() {
         JSONObject jObject = new JSONObject();
         try {
-            Field[] fields = this.getClass().getFields();
-            for (Field field : fields) {
-                jObject.put(field.getName(), field.get(this));
-            }
+            jObject.put("title", title);
+            jObject.put("date", date);
+            jObject.put("imgAlt", imgAlt);
+            jObject.put("imgTitle", imgTitle);
+            jObject.put("content", content);
+            jObject.put("category", category);
+            jObject.put("subCategory", subCategory);
+            jObject.put("url", url);
+            jObject.put("source", source);
+            jObject.put("imgUrl", imgUrl);
         } catch (JSONException e) {
             e.printStackTrace();
-        } catch (SecurityException e) {
-            e.printStackTrace();
-        } catch (IllegalArgumentException e) {
-            e.printStackTrace();
-        } catch (IllegalAccessException e) {
-            e.printStackTrace();
         }
 
         return jObject;
@@ -67,42 +67,71 @@ public class NewsData {
      */
     public String toJsonString() {
         StringBuilder sb = new StringBuilder();
-        sb.append("{");
-        sb.append(getFieldsJson());
-        sb.append("}");
+        try {
+            writeJson(sb);
+        } catch (IOException e) {
+            // StringBuilder doesn't throw
+            throw new IllegalStateException(e);
+        }
         return sb.toString();
     }
 
-    // return json info of fields in this class
-    protected String getFieldsJson() {
-        StringBuilder sb = new StringBuilder();
-        Field[] fields = this.getClass().getFields();
-        String seperator = ", ";
+    /**
+     * Writes this object as a json string to out, without building the
+     * string in memory first.
+     *
+     * @param out where to write the json
+     * @throws IOException if out fails
+     */
+    public void writeJson(Appendable out) throws IOException {
+        out.append('{');
+        writeFieldsJson(out);
+        out.append('}');
+    }
 
-        for (Field field : fields) {
-            String fieldName = field.getName();
-            if (!fieldName.equals("extractions")) {
-                sb.append("\"" + field.getName() + "\"");
-                sb.append(":");
-                String fieldVal = null;
-                try {
-                    fieldVal = field.get(this).toString();
-                } catch (IllegalArgumentException e) {
-                    e.printStackTrace();
-                } catch (IllegalAccessException e) {
-                    e.printStackTrace();
-                } catch (NullPointerException e) {
-                    fieldVal = "";
-                }
-                sb.append("\""
-                        + fieldVal.replace("\"", "\\\"")
-                        + "\"");
-                sb.append(seperator);
-            }
-        }
-        // fence-post problem
-        sb.delete(sb.length() - seperator.length(), sb.length());
-        return sb.toString();
+    /**
+     * Writes this object to out as one line of an ndjson file, with its id
+     * as the first field and a newline at the end.
+     *
+     * @param out where to write the json
+     * @param id the id of this article
+     * @throws IOException if out fails
+     */
+    public void writeJsonLine(Appendable out, long id) throws IOException {
+        out.append("{\"id\":").append(String.valueOf(id)).append(", ");
+        writeFieldsJson(out);
+        out.append("}\n");
+    }
+
+    /*
+     * Write json info of the fields in this class to out. The fields are
+     * written by hand, in declaration order, rather than found with
+     * reflection on every call; a field added to this class has to be added
+     * here and in toJSONObject as well.
+     */
+    protected void writeFieldsJson(Appendable out) throws IOException {
+        writeField(out, "title", title, false);
+        writeField(out, "date", date, true);
+        writeField(out, "imgAlt", imgAlt, true);
+        writeField(out, "imgTitle", imgTitle, true);
+        writeField(out, "content", content, true);
+        writeField(out, "category", category, true);
+        writeField(out, "subCategory", subCategory, true);
+        writeField(out, "url", url, true);
+        writeField(out, "source", source, true);
+        writeField(out, "imgUrl", imgUrl, true);
+    }
+
+    /**
+     * Writes "name":"value" to out, preceded by the ", " seperator unless it
+     * is the first field of an object. A null value is written as "".
+     */
+    static void writeField(Appendable out, String name, String value,
+            boolean seperator) throws IOException {
+        if (seperator)
+            out.append(", ");
+        out.append('"').append(name).append("\":");
+        JsonStrings.appendQuoted(out, value);
     }
 
 }
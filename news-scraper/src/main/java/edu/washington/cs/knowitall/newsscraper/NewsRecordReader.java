@@ -0,0 +1,315 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+
+/**
+ * Reads the articles of an rss.data or extracted data file one at a time,
+ * so no stage has to hold a whole file in memory. The layout of the file is
+ * found from its first few characters, so files written before the config
+ * file switched data-format can still be read:
+ *
+ *  - json, an object keyed by article id, {"12": {...}, "13": {...}};
+ *  - json, an array of articles without ids, [{...}, {...}], which is how
+ *    extracted data used to be written;
+ *  - ndjson, one article per line, {"id":12, ...}, id first.
+ *
+ * A line of an ndjson file that can't be parsed, such as the last line of
+ * a file whose writer died, is logged and skipped.
+ */
+public class NewsRecordReader implements Closeable {
+
+    private static final String ENCODE = "UTF-8";
+
+    /** Longest prefix looked at to tell the layouts apart. */
+    private static final int SNIFF_LIMIT = 8192;
+
+    /** Longest name looked at; article ids and "id" are short. */
+    private static final int NAME_LIMIT = 32;
+
+    private enum Layout { KEYED, ARRAY, LINES }
+
+    /** Reads an article field by field. */
+    public interface ArticleHandler {
+        /**
+         * @param id the id of the article, or null if the file doesn't give
+         *           ids.
+         * @param article positioned at the start of the article object;
+         *                the whole object must be read, or skipped with
+         *                skipValue.
+         * @throws IOException if the article can't be read.
+         */
+        void read(Long id, JsonReader article) throws IOException;
+    }
+
+    private final Logger logger;
+    private final File file;
+    private final BufferedReader in;
+    private final Layout layout;
+    private final JsonParser parser;
+
+    /** Reads the json layouts; null for ndjson. */
+    private JsonReader json;
+
+    /** Number of the line last read from an ndjson file. */
+    private int lineNumber;
+
+    /** Id of the article last returned by next. */
+    private Long id;
+
+    /**
+     * Opens file for reading.
+     * @throws IOException if file can't be opened.
+     */
+    public NewsRecordReader(File file) throws IOException {
+        this.file = file;
+        logger = LoggerFactory.getLogger(NewsRecordReader.class);
+        parser = new JsonParser();
+        in = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), ENCODE));
+        try {
+            layout = sniff(in);
+            if (layout != Layout.LINES) {
+                json = new JsonReader(in);
+                if (layout == Layout.KEYED)
+                    json.beginObject();
+                else
+                    json.beginArray();
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return true if file is in the ndjson layout; an empty file counts as
+     *         ndjson with no articles.
+     * @throws IOException if file can't be read.
+     */
+    public static boolean isNdjson(File file) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), ENCODE));
+        try {
+            return sniff(in) == Layout.LINES;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @return the next article, or null if there are no more.
+     * @throws IOException if the file can't be read, or a json file is
+     *                     malformed.
+     */
+    public JsonObject next() throws IOException {
+        if (layout == Layout.LINES)
+            return nextLine();
+
+        try {
+            if (!json.hasNext())
+                return null;
+            id = layout == Layout.KEYED ? Long.valueOf(json.nextName()) : null;
+            JsonElement article = parser.parse(json);
+            if (!article.isJsonObject())
+                throw new IOException("Article " + id + " of " + file
+                        + " isn't an object.");
+            return article.getAsJsonObject();
+        } catch (NumberFormatException e) {
+            throw new IOException("Bad article id in " + file + ".");
+        } catch (JsonParseException e) {
+            throw new IOException("Can't parse " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Hands the next article to handler to be read straight from the file,
+     * so that it can skip what it doesn't need without building it. As with
+     * next, a bad line of an ndjson file is logged and skipped, including
+     * one that handler fails on.
+     * @return false if there are no more articles.
+     * @throws IOException if the file can't be read, or a json file is
+     *                     malformed.
+     */
+    public boolean next(ArticleHandler handler) throws IOException {
+        if (layout == Layout.LINES) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().length() == 0)
+                    continue;
+                try {
+                    id = lineId(line);
+                    handler.read(id, new JsonReader(new StringReader(line)));
+                    return true;
+                } catch (IOException e) {
+                    logger.warn("next(): Skipping bad line {} of {}.",
+                            lineNumber, file);
+                } catch (RuntimeException e) {
+                    // JsonParseException, or a line that isn't an article
+                    logger.warn("next(): Skipping bad line {} of {}.",
+                            lineNumber, file);
+                }
+            }
+            return false;
+        }
+
+        try {
+            if (!json.hasNext())
+                return false;
+            id = layout == Layout.KEYED ? Long.valueOf(json.nextName()) : null;
+            handler.read(id, json);
+            return true;
+        } catch (NumberFormatException e) {
+            throw new IOException("Bad article id in " + file + ".");
+        }
+    }
+
+    /**
+     * Passes over the next article without building it, which is much
+     * cheaper than next when only the ids are wanted.
+     * @return false if there are no more articles.
+     * @throws IOException if the file can't be read, or a json file is
+     *                     malformed.
+     */
+    public boolean skip() throws IOException {
+        if (layout == Layout.LINES) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().length() == 0)
+                    continue;
+                try {
+                    id = lineId(line);
+                    return true;
+                } catch (RuntimeException e) {
+                    logger.warn("skip(): Skipping bad line {} of {}.",
+                            lineNumber, file);
+                }
+            }
+            return false;
+        }
+
+        try {
+            if (!json.hasNext())
+                return false;
+            id = layout == Layout.KEYED ? Long.valueOf(json.nextName()) : null;
+            json.skipValue();
+            return true;
+        } catch (NumberFormatException e) {
+            throw new IOException("Bad article id in " + file + ".");
+        }
+    }
+
+    /**
+     * @return the id of the article last returned by next, or null if the
+     *         file doesn't give ids.
+     */
+    public Long getId() {
+        return id;
+    }
+
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /* Returns the next article of an ndjson file, skipping bad lines. */
+    private JsonObject nextLine() throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().length() == 0)
+                continue;
+            try {
+                JsonObject article = parser.parse(line).getAsJsonObject();
+                id = article.get("id").getAsLong();
+                return article;
+            } catch (RuntimeException e) {
+                // JsonParseException, or a line that isn't an article
+                logger.warn("next(): Skipping bad line {} of {}.", lineNumber,
+                        file);
+            }
+        }
+        return null;
+    }
+
+    /*
+     * Returns the id of the article on line, parsing the line only if it
+     * wasn't written by writeJsonLine. Throws a RuntimeException if the
+     * line isn't an article.
+     */
+    private Long lineId(String line) {
+        Long lineId = leadingId(line);
+        if (lineId != null)
+            return lineId;
+        return parser.parse(line).getAsJsonObject().get("id").getAsLong();
+    }
+
+    /*
+     * Returns the id of a complete line that starts {"id":N, as lines
+     * written by writeJsonLine do, or null.
+     */
+    private static Long leadingId(String line) {
+        String prefix = "{\"id\":";
+        if (!line.startsWith(prefix) || !line.endsWith("}"))
+            return null;
+        int end = prefix.length();
+        while (end < line.length() && Character.isDigit(line.charAt(end)))
+            end++;
+        if (end == prefix.length() || end == line.length()
+                || line.charAt(end) != ',')
+            return null;
+        try {
+            return Long.valueOf(line.substring(prefix.length(), end));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /*
+     * Tells the layout of the file from its start, and leaves in where it
+     * was: an ndjson line starts with the "id" name, a keyed object with an
+     * id as name.
+     */
+    private static Layout sniff(BufferedReader in) throws IOException {
+        in.mark(SNIFF_LIMIT);
+        try {
+            int c = skipWhitespace(in);
+            if (c == '[')
+                return Layout.ARRAY;
+            if (c != '{')
+                return Layout.LINES;
+            if (skipWhitespace(in) != '"')
+                return Layout.KEYED;
+            StringBuilder name = new StringBuilder();
+            while ((c = in.read()) != -1 && c != '"'
+                    && name.length() < NAME_LIMIT)
+                name.append((char) c);
+            return name.toString().equals("id") ? Layout.LINES : Layout.KEYED;
+        } finally {
+            in.reset();
+        }
+    }
+
+    private static int skipWhitespace(BufferedReader in) throws IOException {
+        int c;
+        do {
+            c = in.read();
+        } while (c != -1 && Character.isWhitespace(c));
+        return c;
+    }
+}
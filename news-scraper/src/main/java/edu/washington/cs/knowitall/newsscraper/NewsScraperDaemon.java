@@ -0,0 +1,145 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps one scraper and one extractor in a resident process, so the Config,
+ * the OpenNLP and ReVerb models and the extraction cache are loaded once
+ * rather than by every cron run.
+ *
+ * Each feed is fetched at the interval the config gives it. After every
+ * fetch, today's raw data is processed if a raw file changed, and rss.data
+ * extracted if it changed; both stages only do the new work, as recorded
+ * in their manifests. The day moves on with the clock.
+ *
+ * stop() lets the fetch, processing and extraction under way finish and
+ * then ends the run; it is called by a shutdown hook on SIGTERM or ^C.
+ */
+public class NewsScraperDaemon implements Runnable {
+
+    private static final long MINUTE = 60 * 1000L;
+
+    private final Logger logger;
+    private final Config config;
+    private final Calendar calendar;
+    private final RssScraper scraper;
+    private final ReverbNewsExtractor extractor;
+    private final FeedSchedule schedule;
+
+    /** Stamps of the raw files and rss.data at the last run of a stage. */
+    private String processedStamp;
+    private String extractedStamp;
+
+    private volatile boolean stopping;
+    private Thread thread;
+
+    /**
+     * @param calendar the calendar scraper and extractor were made with;
+     *                 set to the current time before every cycle.
+     */
+    public NewsScraperDaemon(Config config, Calendar calendar,
+            RssScraper scraper, ReverbNewsExtractor extractor) {
+        logger = LoggerFactory.getLogger(NewsScraperDaemon.class);
+        this.config = config;
+        this.calendar = calendar;
+        this.scraper = scraper;
+        this.extractor = extractor;
+        schedule = new FeedSchedule();
+        for (String feed : scraper.getFeedNames())
+            schedule.add(feed, config.getFetchInterval(feed) * MINUTE);
+    }
+
+    /**
+     * Fetch, process and extract as feeds come due, until stop is called.
+     */
+    public void run() {
+        synchronized (this) {
+            thread = Thread.currentThread();
+        }
+        logger.info("run(): Started.");
+        while (!stopping) {
+            List<String> due = schedule.takeDue(System.currentTimeMillis());
+            if (!due.isEmpty())
+                runCycle(due);
+            synchronized (this) {
+                long wait = schedule.nextDue() - System.currentTimeMillis();
+                if (!stopping && wait > 0) {
+                    try {
+                        wait(wait);
+                    } catch (InterruptedException e) {
+                        stopping = true;
+                    }
+                }
+            }
+        }
+        logger.info("run(): Stopped.");
+    }
+
+    /**
+     * Ends the run once the work under way is done, and waits for it to
+     * end if it is on another thread.
+     */
+    public void stop() {
+        Thread running;
+        synchronized (this) {
+            stopping = true;
+            notifyAll();
+            running = thread;
+        }
+        if (running == null || running == Thread.currentThread())
+            return;
+        logger.info("stop(): Finishing the work under way.");
+        try {
+            running.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /* Fetch the given feeds, then process and extract what changed. */
+    private void runCycle(List<String> feeds) {
+        calendar.setTimeInMillis(System.currentTimeMillis());
+        scraper.updateDate();
+        String day = config.getDateFormat().format(calendar.getTime());
+        String dailyDir = config.getRootDir() + day + "/";
+
+        try {
+            scraper.fetchData(feeds);
+
+            String stamp = stampFiles(new File(dailyDir + "raw_data/"));
+            if (!stamp.equals(processedStamp)) {
+                scraper.processData(null, null);
+                processedStamp = stamp;
+            }
+
+            stamp = stampFiles(new File(dailyDir + "data/"));
+            if (!stamp.equals(extractedStamp)) {
+                extractor.extract(null, null);
+                extractedStamp = stamp;
+            }
+        } catch (RuntimeException e) {
+            // the next cycle tries again
+            logger.error("runCycle(): Failure on {}.", day);
+            logger.error("{}", e);
+        }
+    }
+
+    /* The PipelineManifest stamps of the files in dir, in name order. */
+    private static String stampFiles(File dir) {
+        String[] names = dir.list();
+        if (names == null)
+            return "";
+        Arrays.sort(names);
+        StringBuilder stamp = new StringBuilder(dir.getPath());
+        for (String name : names)
+            stamp.append(' ').append(name).append(' ')
+                    .append(PipelineManifest.stamp(new File(dir, name)));
+        return stamp.toString();
+    }
+}
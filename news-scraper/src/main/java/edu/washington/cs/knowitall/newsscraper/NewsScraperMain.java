@@ -1,8 +1,10 @@
 package edu.washington.cs.knowitall.newsscraper;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.util.Calendar;
+import java.util.List;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -25,18 +27,26 @@ public class NewsScraperMain {
     private static final String SCRAPE_DATA_ONLY = "s";
     private static final String SCRAPE_DATA_AND_PROCESS_DATA = "sp";
     private static final String PROCESS_RSS_WITH_GIVEN_DIR = "p";
+    private static final String PROCESS_THREADS = "pt";
     private static final String USE_REVERB = "r";
     private static final String USE_REVERB_WITH_DIR = "rd";
+    private static final String REVERB_THREADS = "rt";
     private static final String FORMAT_OPT = "fmt";
     private static final String FORMAT_DIR = "fd";
     private static final String FORMAT_TODAY = "ftoday";
     private static final String FORMAT_TIME_FILTER = "ft";
     private static final String FORMAT_CONFIDENCE_THRESHOLD = "fct";
     private static final String FORMAT_CATEGORY_FILTER = "fc";
+    private static final String FORMAT_RANDOM_SAMPLE = "fr";
+    private static final String SEARCH = "q";
+    private static final String DAEMON = "d";
     private static final String HELP = "h";
     private static final String USE_GOOGLE_RSS = "g";
     private static final String USE_YAHOO_RSS = "y";
 
+    /** Number of extractions printed by the q option. */
+    private static final int SEARCH_RESULTS = 10;
+
     private static Calendar calendar;
     private static Options options;
     private static Config config;
@@ -50,9 +60,15 @@ public class NewsScraperMain {
 
         config = getConfig();
 
+        if (cmd.hasOption(DAEMON)) {
+            runDaemon();
+            return;
+        }
+
         fetchNews();
         getExtractions();
         formatData();
+        search();
 
         help();
     }
@@ -71,13 +87,7 @@ public class NewsScraperMain {
     /* Fetch news data from the RSS. */
     private static void fetchNews() {
 
-        RssScraper rs = null;
-
-        if (cmd.hasOption(USE_GOOGLE_RSS)) {
-            rs = new GoogleRssScraper(calendar, config);
-        } else if (cmd.hasOption(USE_YAHOO_RSS)) {
-            rs = new YahooRssScraper(calendar, config);
-        }
+        RssScraper rs = getScraper();
 
         // -s
         if (cmd.hasOption(SCRAPE_DATA_ONLY)) {
@@ -97,7 +107,7 @@ public class NewsScraperMain {
 
     /* Pulls out extractions from the news data using ReVerb. */
     private static void getExtractions() {
-        ReverbNewsExtractor rne = new ReverbNewsExtractor(calendar, config);
+        ReverbNewsExtractor rne = getExtractor();
 
         // -r
         if (cmd.hasOption(USE_REVERB)) {
@@ -115,6 +125,60 @@ public class NewsScraperMain {
         }
     }
 
+    /* The scraper of the config, with the threads of the -pt option. */
+    private static RssScraper getScraper() {
+        RssScraper rs = null;
+
+        if (cmd.hasOption(USE_GOOGLE_RSS)) {
+            rs = new GoogleRssScraper(calendar, config);
+        } else if (cmd.hasOption(USE_YAHOO_RSS)) {
+            rs = new YahooRssScraper(calendar, config);
+        }
+
+        // -pt
+        if (cmd.hasOption(PROCESS_THREADS)) {
+            try {
+                rs.setProcessingThreads(Integer.parseInt(
+                        cmd.getOptionValue(PROCESS_THREADS)));
+            } catch (IllegalArgumentException e) {
+                printUsage();
+            }
+        }
+        return rs;
+    }
+
+    /* The extractor of the config, with the threads of the -rt option. */
+    private static ReverbNewsExtractor getExtractor() {
+        ReverbNewsExtractor rne = new ReverbNewsExtractor(calendar, config);
+
+        // -rt
+        if (cmd.hasOption(REVERB_THREADS)) {
+            try {
+                rne.setWorkerCount(Integer.parseInt(
+                        cmd.getOptionValue(REVERB_THREADS)));
+            } catch (IllegalArgumentException e) {
+                printUsage();
+            }
+        }
+        return rne;
+    }
+
+    /*
+     * Fetch, process and extract in this process until it is told to stop -
+     * called when the user uses the -d option.
+     */
+    private static void runDaemon() {
+        final NewsScraperDaemon daemon = new NewsScraperDaemon(config,
+                calendar, getScraper(), getExtractor());
+        Runtime.getRuntime().addShutdownHook(new Thread("daemon-shutdown") {
+            @Override
+            public void run() {
+                daemon.stop();
+            }
+        });
+        daemon.run();
+    }
+
     /**
      * Format the stored data - called when the user uses the -fmt option.
      */
@@ -162,12 +226,42 @@ public class NewsScraperMain {
 
             ExtractedDataFormatter formatter = new ExtractedDataFormatter(
                     calendar, config);
+            formatter.setRandomSample(cmd.hasOption(FORMAT_RANDOM_SAMPLE));
             formatter.format(dir, timeInterval, confidenceThreshold, category,
                     formatToday);
 
         }
     }
 
+    /**
+     * Search the index for extractions and print them as a json array -
+     * called when the user uses the -q option.
+     */
+    private static void search() {
+        if (cmd.hasOption(SEARCH)) {
+            String[] words = cmd.getOptionValues(SEARCH);
+            if (words == null || words.length != 3)
+                printUsage();
+
+            SearchIndex index = new SearchIndex(new File(config.getIndexDir()));
+            try {
+                List<FormattedNewsData> hits = index.searchExtractions(
+                        words[0], words[1], words[2], null, null,
+                        SEARCH_RESULTS);
+                StringBuilder out = new StringBuilder("[");
+                for (FormattedNewsData hit : hits) {
+                    if (out.length() > 1)
+                        out.append(", ");
+                    hit.writeJson(out);
+                }
+                System.out.println(out.append("]"));
+            } catch (IOException e) {
+                System.err.println("Can't read the index: " + e.getMessage());
+                System.exit(1);
+            }
+        }
+    }
+
     /* Fetches the appropriate configuration file based on the command
      * line args.
      * @return a Config object
@@ -209,6 +303,13 @@ public class NewsScraperMain {
                 "Process RSS only: the first arg is the source directory with the raw data, the second arg is the target directory where processed data will be saved.");
         processWithDirOp.setArgs(2);
 
+        // -pt
+        Option processThreadsOp = new Option(
+                PROCESS_THREADS,
+                false,
+                "Number of threads used to process the raw data of the sp or p option. If not specified, the files are processed one at a time.");
+        processThreadsOp.setArgs(1);
+
         // -r
         Option useReverbOp = new Option(USE_REVERB, false,
                 "Use reverb to extract today's file.");
@@ -218,6 +319,11 @@ public class NewsScraperMain {
                 "Use reverb to extract files in the first arg and save it into second arg directory.");
         useReverbWithDirOp.setArgs(2);
 
+        // -rt
+        Option reverbThreadsOp = new Option(REVERB_THREADS, false,
+                "Number of threads used by the r or rd option to chunk articles. If not specified, one thread is used.");
+        reverbThreadsOp.setArgs(1);
+
         // -fmt
         Option formaterOp = new Option(FORMAT_OPT, false,
                 "Format the reverb news database into a human readable file.");
@@ -242,6 +348,13 @@ public class NewsScraperMain {
               + "Specify the category name. If not specified, all categories will be used.");
         formatCategoryFilter.setArgs(1);
 
+        // -fr
+        Option formatRandomSample = new Option(
+                FORMAT_RANDOM_SAMPLE,
+                false,
+                "This option cannot be used without the " + FORMAT_OPT + " option. "
+              + "Output 500 extractions picked at random, to random_500.txt. If not specified, the 500 most confident extractions are output, to top_500.txt.");
+
         // -ft
         Option formatTimeFilter = new Option(
                 FORMAT_TIME_FILTER,
@@ -266,20 +379,34 @@ public class NewsScraperMain {
         Option useYahoo = new Option(USE_YAHOO_RSS, false,
                 "Opt to use the Yahoo! configuration file and scrape the Yahoo! RSS feed. Exactly one of either -g or -y must be specified.");
 
+        // -q
+        Option searchOp = new Option(SEARCH, false,
+                "Search the index for extractions: the args are the words of arg1, relation and arg2, any of which may be empty. Prints the first " + SEARCH_RESULTS + " matches as a json array.");
+        searchOp.setArgs(3);
+
+        // -d
+        Option daemonOp = new Option(DAEMON, false,
+                "Keep running: fetch every feed at the interval of the config file (fetch-interval and feed-fetch-intervals, in minutes), and process and extract today's data as it changes. The pt and rt options apply. Stops after the work under way when killed.");
+
         // -h
         Option helpOp = new Option(HELP, false, "print program usage");
 
         options.addOption(fetchDataOnlyOp);
         options.addOption(fetchDataAndProcessData);
         options.addOption(processWithDirOp);
+        options.addOption(processThreadsOp);
         options.addOption(useReverbOp);
         options.addOption(useReverbWithDirOp);
+        options.addOption(reverbThreadsOp);
         options.addOption(formaterOp);
         options.addOption(formatTodayOp);
         options.addOption(formatConfidenceThreshhold);
         options.addOption(formatCategoryFilter);
+        options.addOption(formatRandomSample);
         options.addOption(formatTimeFilter);
         options.addOption(formatDir);
+        options.addOption(searchOp);
+        options.addOption(daemonOp);
         options.addOption(useGoogle);
         options.addOption(useYahoo);
         options.addOption(helpOp);
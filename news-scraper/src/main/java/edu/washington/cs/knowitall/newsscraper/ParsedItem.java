@@ -0,0 +1,29 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+/**
+ * A news item as parsed out of one raw data file, before it is checked
+ * against the items of the other files.
+ *
+ * Parsing doesn't look at the shared duplicate checker, so files can be
+ * parsed in parallel. The texts that are only kept when nobody has used
+ * them before are held here until RssScraper merges the item.
+ */
+public class ParsedItem {
+
+    /** The news data, without content, imgAlt and imgTitle. */
+    public final NewsData data;
+
+    /** The item is dropped if another item already has this content;
+     *  null if the item has no content to check. */
+    public String content;
+
+    /** Set on the data only if no other item has used it; may be null. */
+    public String imgAlt;
+
+    /** Set on the data only if no other item has used it; may be null. */
+    public String imgTitle;
+
+    public ParsedItem(NewsData data) {
+        this.data = data;
+    }
+}
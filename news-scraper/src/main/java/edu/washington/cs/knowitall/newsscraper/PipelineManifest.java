@@ -0,0 +1,186 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records the work the pipeline has done in one directory, so a rerun only
+ * does what is missing: the raw files that went into rss.data, the articles
+ * that ReVerb has extracted and the files copied to the column store and
+ * search index, and the files that went into the formatted output.
+ *
+ * The manifest is the text file FILE_NAME in that directory. Every line is
+ * "stage \t key \t value", and lines are only ever appended, each one as
+ * soon as the work it records is on disk. A crash can cut off at most the
+ * last line, which is dropped when the manifest is loaded again. A line
+ * with an empty value resets the key: the values before it are forgotten.
+ * Deleting the file makes the next run redo everything.
+ */
+class PipelineManifest {
+
+    static final String FILE_NAME = "pipeline.manifest";
+
+    /** raw file name -> stamp of the file when it went into rss.data. */
+    static final String PROCESSED = "processed";
+    /** data file name -> "offset id,id,..." for each batch of articles
+     *  written to the extracted file, which is offset bytes long after it. */
+    static final String EXTRACTED = "extracted";
+    /** data file name -> stamp of the file when all of it was extracted. */
+    static final String EXTRACTED_FILE = "extracted-file";
+    /** data file name -> stamp of its extracted file when that was
+     *  written to the column store. */
+    static final String COLUMNS = "columns";
+    /** data file name -> stamp of its extracted file when that was
+     *  written to the search index. */
+    static final String INDEXED = "indexed";
+    /** extracted file name -> stamp of the file when it was formatted. */
+    static final String FORMATTED = "formatted";
+    /** formatted file name -> the options it was formatted with. */
+    static final String FORMAT_OPTIONS = "format-options";
+
+    private static final String ENCODE = "UTF-8";
+
+    private final File file;
+
+    /** stage \t key -> the values added since the key was last reset. */
+    private final Map<String, List<String>> entries;
+
+    /**
+     * Loads the manifest of dir, or starts an empty one if it has none.
+     * @throws IOException if the manifest can't be read.
+     */
+    PipelineManifest(File dir) throws IOException {
+        file = new File(dir, FILE_NAME);
+        entries = new HashMap<String, List<String>>();
+        if (file.exists())
+            load();
+    }
+
+    /**
+     * @return a stamp of the length and modification time of file; a file
+     *         whose stamp is unchanged is taken to be unchanged.
+     */
+    static String stamp(File file) {
+        return file.length() + ":" + file.lastModified();
+    }
+
+    /** @return the last value of key, or null if it has none. */
+    synchronized String get(String stage, String key) {
+        List<String> values = entries.get(stage + "\t" + key);
+        return values == null ? null : values.get(values.size() - 1);
+    }
+
+    /** @return every value of key, oldest first. */
+    synchronized List<String> getAll(String stage, String key) {
+        List<String> values = entries.get(stage + "\t" + key);
+        if (values == null)
+            return Collections.emptyList();
+        return new ArrayList<String>(values);
+    }
+
+    /** @return the keys of stage that have a value. */
+    synchronized Set<String> keys(String stage) {
+        Set<String> keys = new LinkedHashSet<String>();
+        String prefix = stage + "\t";
+        for (String entry : entries.keySet()) {
+            if (entry.startsWith(prefix))
+                keys.add(entry.substring(prefix.length()));
+        }
+        return keys;
+    }
+
+    /**
+     * Adds value to key and writes it to disk.
+     * @throws IOException if the manifest can't be written.
+     */
+    synchronized void add(String stage, String key, String value)
+            throws IOException {
+        if (value.length() == 0)
+            throw new IllegalArgumentException("Empty value for " + key);
+        append(stage, key, value);
+    }
+
+    /**
+     * Forgets the values of key, on disk as well.
+     * @throws IOException if the manifest can't be written.
+     */
+    synchronized void reset(String stage, String key) throws IOException {
+        if (get(stage, key) != null)
+            append(stage, key, "");
+    }
+
+    private void append(String stage, String key, String value)
+            throws IOException {
+        if (stage.indexOf('\t') >= 0 || key.indexOf('\t') >= 0
+                || value.indexOf('\t') >= 0 || value.indexOf('\n') >= 0)
+            throw new IllegalArgumentException("Tab or newline in " + key);
+        Writer out = new OutputStreamWriter(new FileOutputStream(file, true),
+                ENCODE);
+        try {
+            out.write(stage + "\t" + key + "\t" + value + "\n");
+        } finally {
+            out.close();
+        }
+        apply(stage + "\t" + key, value);
+    }
+
+    private void apply(String entry, String value) {
+        if (value.length() == 0) {
+            entries.remove(entry);
+            return;
+        }
+        List<String> values = entries.get(entry);
+        if (values == null) {
+            values = new ArrayList<String>(1);
+            entries.put(entry, values);
+        }
+        values.add(value);
+    }
+
+    /* Reads the complete lines of the file, and drops a cut off last one. */
+    private void load() throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), ENCODE));
+        long complete = 0;
+        try {
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((c = in.read()) != -1) {
+                if (c != '\n') {
+                    line.append((char) c);
+                    continue;
+                }
+                String[] fields = line.toString().split("\t", 3);
+                if (fields.length == 3)
+                    apply(fields[0] + "\t" + fields[1], fields[2]);
+                complete += line.toString().getBytes(ENCODE).length + 1;
+                line.setLength(0);
+            }
+        } finally {
+            in.close();
+        }
+
+        if (complete < file.length()) {
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                raf.setLength(complete);
+            } finally {
+                raf.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The publisher-specific "cleaner" regexes of ArticleTextCleaner, read from
+ * a tab separated publisher/regex file such as GooglePublishers.csv. Every
+ * regex is compiled once per load, into an immutable map that is swapped
+ * in whole, so the rules can be read from any number of threads.
+ *
+ * When the rules come from a file on disk, the file is checked for changes
+ * at most every RELOAD_CHECK_MS and reloaded when it has changed, so a
+ * long-running scraper picks up edited rules without a restart. A file
+ * that can't be read, or holds a bad regex, is logged and the rules
+ * already loaded stay in use.
+ */
+class PublisherRules {
+
+    private static final long RELOAD_CHECK_MS = 10 * 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(PublisherRules.class);
+
+    /** Where the rules are read from. */
+    private final URL source;
+
+    /** The file behind source, or null if it isn't a file on disk. */
+    private final File file;
+
+    private volatile Map<String, Pattern> patterns;
+    private volatile long lastModified;
+    private volatile long nextCheck;
+
+    /** The number of regexes compiled since this object was made. */
+    private final AtomicInteger compiles = new AtomicInteger();
+
+    /** Rules that are loaded once from source, e.g. a classpath resource. */
+    PublisherRules(URL source) {
+        this.source = source;
+        this.file = null;
+        patterns = Collections.emptyMap();
+        reload();
+    }
+
+    /** Rules that are loaded from file and reloaded when it changes. */
+    PublisherRules(File file) throws IOException {
+        this.source = file.toURI().toURL();
+        this.file = file;
+        patterns = Collections.emptyMap();
+        reload();
+    }
+
+    /**
+     * @return the compiled regex for publisher, or null if it has none.
+     */
+    Pattern get(String publisher) {
+        if (file != null && System.currentTimeMillis() >= nextCheck)
+            reloadIfChanged();
+        return patterns.get(publisher);
+    }
+
+    /** @return the number of publishers with a regex. */
+    int size() {
+        return patterns.size();
+    }
+
+    /** @return the number of regexes compiled so far, over all loads. */
+    int getCompileCount() {
+        return compiles.get();
+    }
+
+    /**
+     * Reads and compiles the rules again, whether or not they have changed.
+     * @return true if the new rules are in use; false if they couldn't be
+     *         loaded and the old ones are kept.
+     */
+    synchronized boolean reload() {
+        long modified = file == null ? 0 : file.lastModified();
+        nextCheck = System.currentTimeMillis() + RELOAD_CHECK_MS;
+        try {
+            patterns = Collections.unmodifiableMap(load());
+            lastModified = modified;
+            logger.info("reload(): Loaded {} publisher rules from {}.",
+                    patterns.size(), source);
+            return true;
+        } catch (IOException e) {
+            logger.error("reload(): Can't read {}; keeping {} rules.",
+                    source, patterns.size());
+            logger.error("{}", e);
+        } catch (PatternSyntaxException e) {
+            logger.error("reload(): Bad regex in {}; keeping {} rules.",
+                    source, patterns.size());
+            logger.error("{}", e);
+        }
+        // don't retry a broken file until it changes again
+        lastModified = modified;
+        return false;
+    }
+
+    private synchronized void reloadIfChanged() {
+        if (System.currentTimeMillis() < nextCheck)
+            return;
+        if (file.lastModified() != lastModified)
+            reload();
+        else
+            nextCheck = System.currentTimeMillis() + RELOAD_CHECK_MS;
+    }
+
+    /* Returns a mapping from publisher to its compiled regex. */
+    private Map<String, Pattern> load() throws IOException {
+        Map<String, Pattern> pubs = new HashMap<String, Pattern>();
+        BufferedReader br = new BufferedReader(new InputStreamReader(
+                source.openStream(), "UTF-8"));
+        try {
+            String nextLine;
+            while ((nextLine = br.readLine()) != null) {
+                String[] pubWithRegex = nextLine.split("\t");
+                if (pubWithRegex.length < 2)
+                    continue;
+                String publisherName = pubWithRegex[0];
+                String regex = pubWithRegex[1];
+
+                compiles.incrementAndGet();
+                pubs.put(publisherName, Pattern.compile(regex));
+            }
+        } finally {
+            br.close();
+        }
+        return pubs;
+    }
+}
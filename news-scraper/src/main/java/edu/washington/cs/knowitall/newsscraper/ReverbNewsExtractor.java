@@ -2,24 +2,39 @@ package edu.washington.cs.knowitall.newsscraper;
 
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import opennlp.tools.sentdetect.SentenceDetector;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.JsonObject;
 
-import edu.washington.cs.knowitall.extractor.ReVerbExtractor;
 import edu.washington.cs.knowitall.nlp.ChunkedSentence;
 import edu.washington.cs.knowitall.nlp.OpenNlpSentenceChunker;
 import edu.washington.cs.knowitall.util.DefaultObjects;
@@ -34,6 +49,8 @@ public class ReverbNewsExtractor {
 
     // private final String TARGET_DIR = "reverb_extracted";
     private final String ENCODE = "UTF-8";
+    // the names of the files RssScraper writes to data/ end in this
+    private final String DATA_FILE_SUFFIX = "_rss.data";
 
     private Logger logger;
 
@@ -44,9 +61,46 @@ public class ReverbNewsExtractor {
     private String extractedDataDir;
     private String tag;
     private Calendar calendar;
-    private Map<Long, ExtractedNewsData> data;
-    private OpenNlpSentenceChunker chunker;
-    private ReVerbExtractor reverb;
+
+    /** True to write one article per line rather than one json array. */
+    private boolean ndjson;
+
+    /** Where every extracted file is copied by column once it's complete. */
+    private ExtractionStore store;
+
+    /** Where every extracted file is indexed once it's complete. */
+    private SearchIndex index;
+
+    /**
+     * What chunking and ReVerb made of earlier sentences; null for none.
+     * Read on the first extract and kept for the life of the extractor.
+     */
+    private ExtractionCache cache;
+
+    /** Articles chunked and written between two manifest records. */
+    private static final int CHECKPOINT_ARTICLES = 100;
+
+    /** Articles parsed ahead of the batch being chunked. */
+    private static final int READ_AHEAD_ARTICLES = CHECKPOINT_ARTICLES;
+
+    /** Put after the last article of an ArticleQueue. */
+    private static final Entry<Long, ExtractedNewsData> END =
+            new SimpleImmutableEntry<Long, ExtractedNewsData>(null, null);
+
+    /** Shared by every article serialized in appendData. */
+    private ExtractionContext extractionContext;
+
+    /** Number of threads chunking articles in extractFile. */
+    private int workerCount;
+
+    /**
+     * The threads chunking articles if there is more than one; made on the
+     * first extract and kept, with their models, for later ones.
+     */
+    private ExecutorService workers;
+
+    /** The chunker and sentence detector of the current thread. */
+    private ThreadLocal<Chunkers> chunkers;
 
     /**
      * @param calendar
@@ -58,21 +112,53 @@ public class ReverbNewsExtractor {
     public ReverbNewsExtractor(Calendar cal, Config con) {
         logger = LoggerFactory.getLogger(ReverbNewsExtractor.class);
 
-        reverb = new ReVerbExtractor();
+        extractionContext = new ExtractionContext();
         calendar = cal;
         config = con;
-        data = new HashMap<Long, ExtractedNewsData>();
-        try {
-            chunker = new OpenNlpSentenceChunker();
-        } catch (IOException e) {
-            logger.error("Constructor: unable to initialize sentence chunker.");
-            logger.error("{}", e);
+        workerCount = 1;
+
+        // OpenNLP models aren't thread-safe, so every thread gets its own.
+        chunkers = new ThreadLocal<Chunkers>() {
+            @Override
+            protected Chunkers initialValue() {
+                try {
+                    return newChunkers();
+                } catch (IOException e) {
+                    logger.error("Constructor: unable to initialize sentence chunker.");
+                    throw new IllegalStateException(
+                            "Unable to load the OpenNLP models.", e);
+                }
+            }
+        };
+    }
+
+    /* Load the OpenNLP tools of one thread. */
+    Chunkers newChunkers() throws IOException {
+        return new Chunkers();
+    }
+
+    /**
+     * Set the number of threads that chunk articles. Each thread loads its
+     * own OpenNLP models. The output is the same for any number of threads.
+     * @param count the number of threads; 1 chunks on the calling thread.
+     */
+    public void setWorkerCount(int count) {
+        if (count < 1)
+            throw new IllegalArgumentException("Need at least one worker.");
+        if (workers != null && count != workerCount) {
+            workers.shutdown();
+            workers = null;
         }
+        workerCount = count;
     }
 
     /**
      * Get extractions from the data.
      *
+     * If an article can't be chunked, eg: the OpenNLP models can't be
+     * loaded, nothing more of its file is written or recorded, and the
+     * failure is thrown.
+     *
      * @param srcDir
      *            specify the location of source data, if null, then use today's
      *            location
@@ -109,156 +195,597 @@ public class ReverbNewsExtractor {
             logger.error("extract(): Can't load {}.", location);
             return;
         }
-        for (String fileName : dataFiles) {
-            extractData(loadData(location + fileName));
-
-            // start outputting data
-            if (targetDir == null) {
-                outputData(extractedDataDir + "/");
-            } else {
-                dateString = fileName.substring(0, 10);
-                if (!targetDir.endsWith("/"))
-                    targetDir += "/";
-                outputData(targetDir);
+
+        // the manifest lives in the daily directory above data/
+        PipelineManifest manifest = openManifest(
+                dataFolder.getAbsoluteFile().getParentFile());
+
+        if (cache == null) {
+            cache = openCache();
+            extractionContext.setCache(cache);
+        }
+        long hits = cache == null ? 0 : cache.getHits();
+        long misses = cache == null ? 0 : cache.getMisses();
+        if (workerCount > 1 && workers == null)
+            workers = Executors.newFixedThreadPool(workerCount,
+                    new ThreadFactory() {
+                public Thread newThread(Runnable task) {
+                    // idle between runs; they mustn't keep the JVM up
+                    Thread thread = new Thread(task, "chunker");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        try {
+            for (String fileName : dataFiles) {
+                if (!fileName.endsWith(DATA_FILE_SUFFIX)) {
+                    logger.info("extract(): Skip {}, not a data file.", fileName);
+                    continue;
+                }
+                String outputDir;
+                if (targetDir == null) {
+                    outputDir = extractedDataDir + "/";
+                } else {
+                    dateString = fileName.substring(0, 10);
+                    if (!targetDir.endsWith("/"))
+                        targetDir += "/";
+                    outputDir = targetDir;
+                }
+                extractFile(location, fileName, outputDir, manifest, workers);
             }
-            data.clear();
+        } finally {
+            saveCache(hits, misses);
         }
         logger.info("Extraction finished.");
     }
 
+    /* Load the extraction cache of the config; null if it has none. */
+    private ExtractionCache openCache() {
+        int size = config.getExtractionCacheSize();
+        if (size <= 0)
+            return null;
+        File file = new File(config.getExtractionCacheFile());
+        try {
+            return new ExtractionCache(file, size);
+        } catch (IOException e) {
+            logger.error("openCache(): Can't read {}; starting an empty "
+                    + "cache.", file);
+            logger.error("{}", e);
+            file.delete();
+            try {
+                return new ExtractionCache(file, size);
+            } catch (IOException again) {
+                return null;
+            }
+        }
+    }
+
+    /*
+     * Log the hit rate of this run, which started at the given counts, and
+     * write the extraction cache back to its file if it gained sentences.
+     */
+    private void saveCache(long hits, long misses) {
+        if (cache == null)
+            return;
+        hits = cache.getHits() - hits;
+        misses = cache.getMisses() - misses;
+        if (hits + misses > 0)
+            logger.info("extract(): {} of {} sentences ({}%) were in the "
+                    + "extraction cache.", new Object[] {hits, hits + misses,
+                    hits * 100 / (hits + misses)});
+        if (misses == 0)
+            return;
+        try {
+            cache.save();
+        } catch (IOException e) {
+            logger.error("saveCache(): Failure to save {}.",
+                    config.getExtractionCacheFile());
+            logger.error("{}", e);
+        }
+    }
+
+    /* Load the manifest of the given directory; null if it can't be read. */
+    private PipelineManifest openManifest(File dir) {
+        try {
+            return new PipelineManifest(dir);
+        } catch (IOException e) {
+            logger.error("openManifest(): Can't read the manifest of {}; "
+                    + "extracting every article.", dir);
+            logger.error("{}", e);
+            return null;
+        }
+    }
+
+    /*
+     * Extract the articles of one rss.data file into outputDir. Articles
+     * are read from the file as they are needed, CHECKPOINT_ARTICLES at a
+     * time, on a thread of their own, so the file is never in memory as a
+     * whole and the next batch is parsed while this one is chunked. Every
+     * batch is recorded in the manifest once it is on disk, so a run that
+     * dies halfway is picked up where it stopped, and a file that gained
+     * articles since it was extracted only has the new ones extracted.
+     * A batch that isn't chunked to the end is neither written nor
+     * recorded.
+     */
+    private void extractFile(String location, String fileName,
+            String outputDir, PipelineManifest manifest,
+            ExecutorService workers) {
+        File dataFile = new File(location + fileName);
+        String stamp = PipelineManifest.stamp(dataFile);
+        File jsonDataFile = getOutputFile(outputDir);
+        if (manifest != null && hasConfiguredFormat(jsonDataFile) && stamp.equals(
+                manifest.get(PipelineManifest.EXTRACTED_FILE, fileName))) {
+            logger.info("extract(): {} is already extracted into {}.",
+                    fileName, jsonDataFile);
+            finishStages(manifest, fileName, jsonDataFile);
+            return;
+        }
+
+        long offset = 0;
+        Set<Long> done = new HashSet<Long>();
+        if (manifest != null)
+            offset = skipExtracted(manifest, fileName, dataFile, jsonDataFile,
+                    done);
+
+        logger.info("extractData(): Starting extraction of {}.", dataFile);
+        long hits = cache == null ? 0 : cache.getHits();
+        long misses = cache == null ? 0 : cache.getMisses();
+        ArticleQueue articles = new ArticleQueue(dataFile, done);
+        try {
+            // the output is only touched once the first batch is chunked
+            boolean started = false;
+            Map<Long, ExtractedNewsData> batch =
+                    new LinkedHashMap<Long, ExtractedNewsData>();
+            StringBuilder ids = new StringBuilder();
+            boolean more = true;
+            while (more) {
+                Entry<Long, ExtractedNewsData> article = articles.take();
+                more = article != null;
+                if (more) {
+                    batch.put(article.getKey(), article.getValue());
+                    ids.append(ids.length() == 0 ? "" : ",")
+                            .append(article.getKey());
+                }
+                // write a full batch, or what is left after the last article
+                if (batch.size() < CHECKPOINT_ARTICLES
+                        && (more || batch.isEmpty()))
+                    continue;
+
+                if (!chunkArticles(batch.values(), workers)) {
+                    logger.error("extractData(): Interrupted; {} is left "
+                            + "for the next run.", dataFile);
+                    return;
+                }
+                if (!started) {
+                    offset = startOutput(jsonDataFile, offset);
+                    started = true;
+                }
+                offset = appendData(jsonDataFile, batch, offset <= 1);
+                if (manifest != null)
+                    manifest.add(PipelineManifest.EXTRACTED, fileName,
+                            offset + " " + ids);
+                batch.clear();
+                ids.setLength(0);
+            }
+            if (!started)
+                startOutput(jsonDataFile, offset);
+            finishOutput(jsonDataFile);
+            if (cache != null) {
+                hits = cache.getHits() - hits;
+                misses = cache.getMisses() - misses;
+                logger.info("extractData(): {} of {} sentences of {} were in "
+                        + "the extraction cache.", new Object[] {hits,
+                        hits + misses, dataFile});
+            }
+            // a file that couldn't be read to the end is picked up again
+            if (manifest != null && !articles.failed())
+                manifest.add(PipelineManifest.EXTRACTED_FILE, fileName, stamp);
+            if (!articles.failed())
+                finishStages(manifest, fileName, jsonDataFile);
+        } catch (IOException e) {
+            logger.error("outputData(): Error writing {}.", jsonDataFile);
+            logger.error("{}", e);
+        } finally {
+            articles.close();
+        }
+    }
+
+    /*
+     * The last stages, for jsonDataFile, the complete output of fileName:
+     * copy it to the column store and index it.
+     */
+    private void finishStages(PipelineManifest manifest, String fileName,
+            File jsonDataFile) {
+        storeColumns(manifest, fileName, jsonDataFile);
+        indexExtractions(manifest, fileName, jsonDataFile);
+    }
+
+    /*
+     * Copy the extractions of jsonDataFile to the column store, unless the
+     * manifest records that they're there already.
+     */
+    private void storeColumns(PipelineManifest manifest, String fileName,
+            File jsonDataFile) {
+        String stamp = PipelineManifest.stamp(jsonDataFile);
+        if (manifest != null && store.has(dateString) && stamp.equals(
+                manifest.get(PipelineManifest.COLUMNS, fileName)))
+            return;
+        try {
+            store.write(dateString, jsonDataFile);
+            if (manifest != null)
+                manifest.add(PipelineManifest.COLUMNS, fileName, stamp);
+            logger.info("storeColumns(): Stored the extractions of {}.",
+                    jsonDataFile);
+        } catch (IOException e) {
+            logger.error("storeColumns(): Failure to store {} by column.",
+                    jsonDataFile);
+            logger.error("{}", e);
+        }
+    }
+
+    /*
+     * Index the articles and extractions of jsonDataFile, unless the
+     * manifest records that they're indexed already.
+     */
+    private void indexExtractions(PipelineManifest manifest, String fileName,
+            File jsonDataFile) {
+        String stamp = PipelineManifest.stamp(jsonDataFile);
+        if (manifest != null && index.has(dateString) && stamp.equals(
+                manifest.get(PipelineManifest.INDEXED, fileName)))
+            return;
+        try {
+            index.write(dateString, jsonDataFile);
+            if (manifest != null)
+                manifest.add(PipelineManifest.INDEXED, fileName, stamp);
+            logger.info("indexExtractions(): Indexed {}.", jsonDataFile);
+        } catch (IOException e) {
+            logger.error("indexExtractions(): Failure to index {}.",
+                    jsonDataFile);
+            logger.error("{}", e);
+        }
+    }
+
     /*
-     * parse the given newsData json string and extract the info in the string
+     * Put the ids of the articles of dataFile that the manifest records as
+     * already written to jsonDataFile in done. Returns the length of
+     * jsonDataFile after the last recorded batch, or 0 if there is nothing
+     * to pick up.
      */
-    private void extractData(String newsData) {
-        logger.info("extractData(): Starting extraction.");
-        Gson gson = new Gson();
-        HashMap<Long, ExtractedNewsData> map = gson.fromJson(newsData,
-                new TypeToken<HashMap<Long, ExtractedNewsData>>() {
-                }.getType());
-        Iterator<Entry<Long, ExtractedNewsData>> it = map.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<Long, ExtractedNewsData> pairs = it
-                    .next();
-            ExtractedNewsData currentData = pairs
-                    .getValue();
-            currentData.extractions = new HashMap<String, ChunkedSentence>();
-            reverbExtract(currentData, currentData.imgAlt);
-            reverbExtract(currentData, currentData.imgTitle);
-            reverbExtract(currentData, currentData.content);
-            reverbExtract(currentData, currentData.title);
-        }
-        // add this map to the wholeData
-        data.putAll(map);
+    private long skipExtracted(PipelineManifest manifest, String fileName,
+            File dataFile, File jsonDataFile, Set<Long> done) {
+        List<String> batches = manifest.getAll(PipelineManifest.EXTRACTED,
+                fileName);
+        if (batches.isEmpty())
+            return 0;
+
+        for (String batch : batches) {
+            for (String id : batch.substring(batch.indexOf(' ') + 1).split(","))
+                done.add(Long.valueOf(id));
+        }
+
+        String last = batches.get(batches.size() - 1);
+        long offset = Long.parseLong(last.substring(0, last.indexOf(' ')));
+        Set<Long> ids = hasConfiguredFormat(jsonDataFile)
+                && jsonDataFile.length() >= offset ? readIds(dataFile) : null;
+        // the ids change if rss.data was made again from scratch
+        if (ids == null || !ids.containsAll(done)) {
+            logger.info("extract(): {} doesn't match the manifest; extracting "
+                    + "{} from the start.", jsonDataFile, fileName);
+            try {
+                manifest.reset(PipelineManifest.EXTRACTED, fileName);
+            } catch (IOException e) {
+                logger.error("extract(): Failure to reset manifest.");
+                logger.error("{}", e);
+            }
+            done.clear();
+            return 0;
+        }
+
+        logger.info("extract(): Picking up {} at {} of {} articles.",
+                new Object[] {fileName, done.size(), ids.size()});
+        return offset;
     }
 
     /*
-     * output extracted data into the specified directory. 
+     * Read the ids of the articles of dataFile, without parsing the
+     * articles; null if it can't be read.
      */
-    private void outputData(String targetDir) {
-        logger.info("outputData(): Starting to output data.");
+    private Set<Long> readIds(File dataFile) {
+        Set<Long> ids = new HashSet<Long>();
+        try {
+            NewsRecordReader in = new NewsRecordReader(dataFile);
+            try {
+                while (in.skip())
+                    ids.add(in.getId());
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            logger.error("readIds(): Can't read {}.", dataFile);
+            logger.error("{}", e);
+            return null;
+        }
+        return ids;
+    }
 
+    /*
+     * The file the articles of the current date go to.
+     */
+    private File getOutputFile(String targetDir) {
         File targetFolder = new File(targetDir);
         if (!targetDir.endsWith("/"))
             targetDir += "/";
         targetFolder.mkdirs();
         if (!targetFolder.exists())
             logger.error("outputData(): can't create folder.");
-        String jsonDataDir = targetDir + dateString + "_" + tag + "_ExtractedData."
-                + extractedDataSuffix;
-        // String readableDataDir = targetDir + dateString + "_readable.txt";
-        logger.info("outputData(): storing in {}", targetDir);
-        File jsonDataFile = new File(jsonDataDir);
+        return new File(targetDir + dateString + "_" + tag + "_ExtractedData."
+                + extractedDataSuffix);
+    }
 
+    /* True if jsonDataFile exists and is in the format of the config. */
+    private boolean hasConfiguredFormat(File jsonDataFile) {
+        if (!jsonDataFile.exists())
+            return false;
         try {
-            jsonDataFile.createNewFile();
+            return NewsRecordReader.isNdjson(jsonDataFile) == ndjson;
         } catch (IOException e) {
-            logger.error("outputData(): Unable to create new jsonDataFile.");
-            logger.error("{}", e);
+            return false;
         }
+    }
 
-        if (!jsonDataFile.exists())
-            logger.error("outputData(): can't create output file data.");
-        BufferedWriter out = null;
+    /*
+     * Cut jsonDataFile back to offset, dropping whatever a failed run wrote
+     * after its last recorded batch, or start it afresh if offset is 0.
+     * Returns the length of the file.
+     */
+    private long startOutput(File jsonDataFile, long offset)
+            throws IOException {
+        logger.info("outputData(): storing in {}", jsonDataFile);
+        if (offset > 0) {
+            RandomAccessFile raf = new RandomAccessFile(jsonDataFile, "rw");
+            try {
+                raf.setLength(offset);
+            } finally {
+                raf.close();
+            }
+            return offset;
+        }
+        Writer out = new OutputStreamWriter(new FileOutputStream(
+                jsonDataFile), ENCODE);
+        try {
+            if (!ndjson)
+                out.write("[");
+        } finally {
+            out.close();
+        }
+        return jsonDataFile.length();
+    }
 
+    /*
+     * Append the given articles, by id, to jsonDataFile, which holds the
+     * opening bracket and the articles written so far. In ndjson the ids
+     * are written as well, one article per line. Returns its new length.
+     */
+    private long appendData(File jsonDataFile,
+            Map<Long, ExtractedNewsData> articles, boolean first)
+            throws IOException {
+        BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(jsonDataFile, true), ENCODE));
         try {
-            out = new BufferedWriter(new OutputStreamWriter(
-                    new FileOutputStream(jsonDataFile), ENCODE));
-        } catch (Exception e) {
-            logger.error("outputData(): Unable to create new Buffered"
-                    + "Writer object.");
-            logger.error("{}", e);
+            // create JSON output string manually
+            String seperator = ", ";
+            for (Entry<Long, ExtractedNewsData> article : articles.entrySet()) {
+                if (ndjson) {
+                    article.getValue().writeJsonLine(out, article.getKey(),
+                            extractionContext);
+                    continue;
+                }
+                if (!first)
+                    out.write(seperator);
+                first = false;
+                article.getValue().writeJson(out, extractionContext);
+            }
+        } finally {
+            out.close();
         }
+        return jsonDataFile.length();
+    }
 
-        Iterator<Entry<Long, ExtractedNewsData>> it = data.entrySet()
-                .iterator();
+    /* Close the array of articles in jsonDataFile; ndjson needs nothing. */
+    private void finishOutput(File jsonDataFile) throws IOException {
+        if (ndjson)
+            return;
+        Writer out = new OutputStreamWriter(new FileOutputStream(
+                jsonDataFile, true), ENCODE);
+        try {
+            out.write("]");
+        } finally {
+            out.close();
+        }
+    }
 
-        // create JSON output string manually
-        StringBuilder sb = new StringBuilder();
-        sb.append("[");
-        String seperator = ", ";
-        boolean empty = true;
+    /*
+     * Chunk the given articles, on workers if there are any. Returns false
+     * if interrupted before every article was chunked; throws whatever
+     * chunking an article threw.
+     */
+    private boolean chunkArticles(Collection<ExtractedNewsData> articles,
+            ExecutorService workers) {
+        if (workers != null)
+            return chunkInParallel(articles, workers);
+        for (ExtractedNewsData currentData : articles) {
+            chunkArticle(currentData);
+        }
+        return true;
+    }
 
-        while (it.hasNext()) {
-            empty = false;
-            Map.Entry<Long, ExtractedNewsData> pair = it
-                    .next();
-            sb.append(pair.getValue().toJsonString(reverb) + seperator);
+    /*
+     * Chunk the sentences of every article on the given pool of threads.
+     */
+    private boolean chunkInParallel(Collection<ExtractedNewsData> articles,
+            ExecutorService workers) {
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (final ExtractedNewsData article : articles) {
+            tasks.add(new Callable<Void>() {
+                public Void call() {
+                    chunkArticle(article);
+                    return null;
+                }
+            });
         }
 
-        if (!empty)
-            sb.delete(sb.length() - seperator.length(), sb.length());
-        sb.append("]");
         try {
-            out.write(sb.toString());
-            out.close();
-        } catch (IOException e) {
-            logger.error("outputData(): Error writing to/closing BufferedWriter.");
-            logger.error("{}", e);
+            for (Future<Void> result : workers.invokeAll(tasks)) {
+                result.get();
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("chunkInParallel(): Interrupted while chunking.");
+            return false;
+        } catch (ExecutionException e) {
+            logger.error("chunkInParallel(): Chunking failed.");
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IllegalStateException(cause);
         }
     }
 
+    /*
+     * Chunk the image alt text, image title, content and title of the given
+     * article into its extractions, using the current thread's chunker.
+     */
+    private void chunkArticle(ExtractedNewsData currentData) {
+        currentData.extractions = new HashMap<String, ChunkedSentence>();
+        reverbExtract(currentData, currentData.imgAlt);
+        reverbExtract(currentData, currentData.imgTitle);
+        reverbExtract(currentData, currentData.content);
+        reverbExtract(currentData, currentData.title);
+    }
+
     /*
      * extract the given string, and store the extracted information into the
-     * given ExtractedNewsData
+     * given ExtractedNewsData. Sentences in the cache aren't chunked again.
      */
     private void reverbExtract(ExtractedNewsData currentData, String str) {
+        Chunkers current = chunkers.get();
         if (str != null && str.length() > 1) {
-            try {
-                String[] sentences = DefaultObjects
-                        .getDefaultSentenceDetector().sentDetect(str);
-
-                for (String sent : sentences) {
-                    currentData.extractions.put(sent, chunker.chunkSentence(sent));
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
+            String[] sentences = current.sentenceDetector.sentDetect(str);
+
+            for (String sent : sentences) {
+                ChunkedSentence chunked = cache == null ? null
+                        : cache.getChunked(sent);
+                if (chunked == null)
+                    chunked = current.chunker.chunkSentence(sent);
+                currentData.extractions.put(sent, chunked);
             }
         }
     }
 
     /*
-     * Load file with given location and return file content.
+     * Parses the articles of one rss.data file, by id, on a thread of its
+     * own, at most READ_AHEAD_ARTICLES ahead of the caller.
      */
-    private String loadData(String location) {
-        logger.info("loadData(): Loading data from: {}", location);
-        StringBuilder sb = new StringBuilder();
-        File dataFile = new File(location);
-        Scanner sc = null;
+    private class ArticleQueue implements Runnable {
+
+        private final File dataFile;
+        private final Set<Long> skip;
+        private final BlockingQueue<Entry<Long, ExtractedNewsData>> queue;
+        private final Thread thread;
+        private volatile boolean failed;
+
+        /*
+         * Start parsing dataFile, leaving out the articles whose ids are
+         * in skip.
+         */
+        ArticleQueue(File dataFile, Set<Long> skip) {
+            this.dataFile = dataFile;
+            this.skip = skip;
+            queue = new ArrayBlockingQueue<Entry<Long, ExtractedNewsData>>(
+                    READ_AHEAD_ARTICLES);
+            thread = new Thread(this, "article-reader");
+            thread.setDaemon(true);
+            thread.start();
+        }
 
-        try {
-            sc = new Scanner(dataFile, ENCODE);
+        public void run() {
+            logger.info("loadData(): Loading data from: {}", dataFile);
+            try {
+                try {
+                    readArticles();
+                } catch (IOException e) {
+                    fail(e);
+                } catch (RuntimeException e) {
+                    // JsonParseException, or an article of the wrong shape
+                    fail(e);
+                }
+                queue.put(END);
+            } catch (InterruptedException e) {
+                // closed before the end of the file
+            }
+        }
 
-            while (sc.hasNextLine())
-                sb.append(sc.nextLine());
+        private void readArticles() throws IOException, InterruptedException {
+            Gson gson = new Gson();
+            NewsRecordReader in = new NewsRecordReader(dataFile);
+            try {
+                JsonObject article;
+                while ((article = in.next()) != null) {
+                    Long id = in.getId();
+                    if (id == null)
+                        throw new IOException(dataFile + " has no ids.");
+                    if (!skip.contains(id))
+                        queue.put(new SimpleImmutableEntry<Long, ExtractedNewsData>(
+                                id, gson.fromJson(article, ExtractedNewsData.class)));
+                }
+            } finally {
+                in.close();
+            }
+        }
 
-        } catch (FileNotFoundException e) {
-            logger.error("loadData(): Unable to load data.");
+        private void fail(Exception e) {
+            logger.error("extractData(): Can't parse news data.");
             logger.error("{}", e);
+            failed = true;
+        }
+
+        /* Returns the next article, or null after the last one. */
+        Entry<Long, ExtractedNewsData> take() {
+            try {
+                Entry<Long, ExtractedNewsData> article = queue.take();
+                return article == END ? null : article;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed = true;
+                return null;
+            }
+        }
+
+        /* True if the file couldn't be read to the end. */
+        boolean failed() {
+            return failed;
         }
 
-        if (sc != null) sc.close();
+        /* Stop parsing, if it hasn't stopped already. */
+        void close() {
+            thread.interrupt();
+        }
+    }
 
-        return sb.toString();
+    /*
+     * The OpenNLP tools one thread uses.
+     */
+    static class Chunkers {
+        final OpenNlpSentenceChunker chunker;
+        final SentenceDetector sentenceDetector;
+
+        Chunkers() throws IOException {
+            chunker = new OpenNlpSentenceChunker();
+            sentenceDetector = DefaultObjects.getDefaultSentenceDetector();
+        }
     }
 
     /*
@@ -270,5 +797,8 @@ public class ReverbNewsExtractor {
         extractedDataSuffix = config.getExtractedDataSuffix();
         extractedDataDir = config.getExtractedDataDir();
         tag = config.getTag();
+        ndjson = config.isNdjson();
+        store = new ExtractionStore(new File(config.getColumnStoreDir()));
+        index = new SearchIndex(new File(config.getIndexDir()));
     }
 }
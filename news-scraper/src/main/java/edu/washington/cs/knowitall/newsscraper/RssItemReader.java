@@ -0,0 +1,190 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+
+/**
+ * Reads the items of a raw RSS file one at a time, so the whole file never
+ * has to be held in memory or parsed into a single document.
+ *
+ * The raw files are html written by Jsoup (eg, "<link />http://..."), and
+ * the Google ones hold several documents back to back, so they are not
+ * well-formed xml and can't go through an xml pull parser. Instead the
+ * reader scans the character stream for "<item" ... "</item>" and parses
+ * just that slice with Jsoup. Each item comes out the same as it would from
+ * parsing the whole file with getFileContent(), which drops line breaks.
+ * Comments are skipped whole, so an "<item>" or "</item>" in one is no
+ * tag; Jsoup escapes tags in text, and writes comments as they came.
+ */
+public class RssItemReader {
+
+    private static final String ITEM_START = "<item";
+    private static final String ITEM_END = "</item>";
+    private static final String COMMENT_START = "<!--";
+    private static final int EOF = -1;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader in;
+    private final char[] buffer;
+    private int bufferPos;
+    private int bufferEnd;
+
+    /** Number of items returned so far. */
+    private int itemCount;
+
+    /**
+     * @param file the raw RSS file to read.
+     * @param encode the encoding of the file.
+     * @throws IOException if the file can't be opened.
+     */
+    public RssItemReader(File file, String encode) throws IOException {
+        in = new InputStreamReader(new FileInputStream(file), encode);
+        buffer = new char[BUFFER_SIZE];
+        bufferPos = 0;
+        bufferEnd = 0;
+        itemCount = 0;
+    }
+
+    /**
+     * @return the next item element in the file, or null if there are no
+     *         more items.
+     * @throws IOException if the file can't be read.
+     */
+    public Element nextItem() throws IOException {
+        StringBuilder item = new StringBuilder();
+        if (!skipToItemStart(item))
+            return null;
+        // if the file ends in the middle of an item, Jsoup closes it the
+        // same way it would at the end of the whole document.
+        readItem(item);
+
+        itemCount++;
+        return Jsoup.parse(item.toString()).getElementsByTag("item").first();
+    }
+
+    /** @return the number of items read so far. */
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    /** Closes the underlying file. */
+    public void close() {
+        try {
+            in.close();
+        } catch (IOException e) {
+            // nothing left to read anyway
+        }
+    }
+
+    /*
+     * Skips to the next "<item>" or "<item " tag and puts what has been read
+     * of the tag into item. Returns false at the end of the file.
+     */
+    private boolean skipToItemStart(StringBuilder item) throws IOException {
+        int matched = 0;
+        int comment = 0;
+        int c;
+        while ((c = read()) != EOF) {
+            comment = matchComment(comment, c);
+            if (comment == COMMENT_START.length()) {
+                skipComment(null);
+                comment = 0;
+                matched = 0;
+                continue;
+            }
+
+            if (matched == ITEM_START.length()) {
+                if (c == '>' || Character.isWhitespace(c)) {
+                    item.append(ITEM_START).append((char) c);
+                    return true;
+                }
+                // some other tag, like <itemid>
+                matched = 0;
+            }
+
+            if (c == ITEM_START.charAt(matched))
+                matched++;
+            else
+                matched = (c == ITEM_START.charAt(0)) ? 1 : 0;
+        }
+        return false;
+    }
+
+    /*
+     * Appends the rest of an item, up to and including "</item>", to item,
+     * with any comment in it whole. Returns false if the file ends first.
+     */
+    private boolean readItem(StringBuilder item) throws IOException {
+        int matched = 0;
+        int comment = 0;
+        int c;
+        while ((c = read()) != EOF) {
+            item.append((char) c);
+            comment = matchComment(comment, c);
+            if (comment == COMMENT_START.length()) {
+                if (!skipComment(item))
+                    return false;
+                comment = 0;
+                matched = 0;
+                continue;
+            }
+
+            if (c == ITEM_END.charAt(matched))
+                matched++;
+            else
+                matched = (c == ITEM_END.charAt(0)) ? 1 : 0;
+
+            if (matched == ITEM_END.length())
+                return true;
+        }
+        return false;
+    }
+
+    /* Returns how much of "<!--" is matched after c, given matched before. */
+    private static int matchComment(int matched, int c) {
+        if (c == COMMENT_START.charAt(matched))
+            return matched + 1;
+        return c == '<' ? 1 : 0;
+    }
+
+    /*
+     * Reads the rest of a comment, through "-->", appending it to sb unless
+     * sb is null. Returns false if the file ends first.
+     */
+    private boolean skipComment(StringBuilder sb) throws IOException {
+        int dashes = 0;
+        int c;
+        while ((c = read()) != EOF) {
+            if (sb != null)
+                sb.append((char) c);
+            if (c == '>' && dashes >= 2)
+                return true;
+            dashes = c == '-' ? dashes + 1 : 0;
+        }
+        return false;
+    }
+
+    /* Reads the next character, dropping the line breaks Scanner would. */
+    private int read() throws IOException {
+        while (true) {
+            if (bufferPos == bufferEnd) {
+                bufferEnd = in.read(buffer, 0, BUFFER_SIZE);
+                bufferPos = 0;
+                if (bufferEnd == EOF) {
+                    bufferEnd = 0;
+                    return EOF;
+                }
+            }
+            char c = buffer[bufferPos++];
+            if (c != '\n' && c != '\r' && c != '\u2028' && c != '\u2029'
+                    && c != '\u0085')
+                return c;
+        }
+    }
+}
@@ -4,39 +4,52 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 
 
 public abstract class RssScraper {
 
     protected final String OUTPUT_DATABASE_NAME = "rss.data";
-    protected final String ID_COUNT_FILE_NAME = "idCount";
     protected final String ENCODE = "UTF-8";
     protected final String FOLDER_PATH_SEPERATOR = "/";
 
+    /** How long fetch cache entries of pages that are no longer fetched,
+     *  and aren't configured feeds, are kept. */
+    protected final long FETCH_CACHE_MAX_AGE = 2 * 24 * 60 * 60 * 1000L;
+
     protected String baseUrl;
     protected String dateString;
     protected String outputLocation;
@@ -47,12 +60,38 @@ public abstract class RssScraper {
     protected Map<String, NewsData> dataMap;
     protected Set<String> duplicateChecker;
 
+    /** Ids of the articles in dataMap that were loaded from rss.data. */
+    protected Map<String, Long> knownIds;
+
+    /** Number of threads used to parse raw files. */
+    protected int processingThreads;
+
     /** List of all the categories from the config file. */
     protected List<String> categories;
 
     /** Mapping from a category name to a list of its RSS feeds. */
     protected Map<String, List<String>> rssCategoryToFeeds;
 
+    /** The titles and contents of earlier days; null if it can't be
+     *  opened, in which case nothing is dropped. */
+    protected DedupStore seenStories;
+
+    /** Number of stories dropped because an earlier day had them. */
+    protected AtomicInteger earlierStories;
+
+    /** Fingerprints of the contents in dataMap; null if near duplicates
+     *  are kept. */
+    protected SimHashIndex nearDuplicates;
+
+    /** Number of stories dropped as near duplicates of another. */
+    protected int nearDuplicateStories;
+
+    /** Hands out the ids of new articles. */
+    protected IdAllocator idAllocator;
+
+    /** Downloads the feeds during fetchData. */
+    protected FeedFetcher fetcher;
+
     protected Logger logger;
     protected Calendar calendar;
     protected Config config;
@@ -61,25 +100,29 @@ public abstract class RssScraper {
         calendar = cal;
         config = con;
         logger = LoggerFactory.getLogger(this.getClass());
+        processingThreads = 1;
         readConfig();
     }
 
     /* Using the passed config file, set up some easy vars.
-     * @modifies dateFormat, dateString, baseURl, sentenceMinimumLength
+     * @modifies dateFormat, dateString, baseURl, sentenceMinimumLength, idAllocator
      */
     private void readConfig() {
         dateFormat = config.getDateFormat();
         dateString = dateFormat.format(calendar.getTime());
         baseUrl = config.getBaseUrl();
         sentenceMinimumLength = config.getSentenceMinimumLength();
+        idAllocator = new IdAllocator(new File(config.getIdCountFile()));
     }
 
     /**
      * Fetch the raw news data from the RSS feeds specified in the Config file
-     * and store it into the directory specified in the Config file.
+     * and store it into the directory specified in the Config file. Feeds
+     * are downloaded concurrently; the number of downloads at once is
+     * bounded by the fetch-threads and fetch-threads-per-host config fields.
      *
      * @requires config != null, logger != null, baseUrl != null, dateString != null
-     * @modifies outputLocation, rawDataDir, categories, rssCategoryToFeeds, file system
+     * @modifies outputLocation, rawDataDir, categories, rssCategoryToFeeds, fetcher, file system
      * @effects outputLocation, rawDataDir, categories: sets to what is specified in config
      * @effects rssCategoryToFeeds: fills map with rss feeds.
      * @effects file system: creates the directories specified in config: the root directory,
@@ -87,11 +130,84 @@ public abstract class RssScraper {
      *                       with fetched HTML data.
      */
     public void fetchData() {
+        fetchData(null);
+    }
+
+    /**
+     * Fetch some of the RSS feeds specified in the Config file, as
+     * fetchData does for all of them.
+     * @param feedNames the feeds to fetch, as returned by getFeedNames;
+     *                  null for all.
+     */
+    public void fetchData(Collection<String> feedNames) {
         logger.info("fetchData(): Start fetching data.");
 
         outputLocation = makeDailyDirectory(config.getRootDir());
         rawDataDir = outputLocation + "raw_data/";
 
+        readFeeds();
+
+        File rawDir = new File(rawDataDir);
+        rawDir.mkdirs();
+
+        FetchCache cache = new FetchCache(config.getFetchCacheDir());
+        cache.prune(getFeedUrls(), FETCH_CACHE_MAX_AGE);
+        fetcher = new FeedFetcher(config.getFetchThreads(),
+                                  config.getFetchThreadsPerHost(), cache);
+
+        for (final String categoryName: categories) {
+            List<String> feeds = rssCategoryToFeeds.get(categoryName);
+            for (final String feedName: feeds) {
+                if (feedNames != null
+                        && !feedNames.contains(categoryName + "_" + feedName))
+                    continue;
+                fetcher.submit(categoryName + "_" + feedName, new Runnable() {
+                    public void run() {
+                        fetchFeedWithRetries(categoryName, feedName);
+                    }
+                });
+            }
+        }
+
+        fetcher.awaitCompletion();
+        logger.info("fetchData(): End fetching.");
+    }
+
+    /**
+     * @return the name of every feed of the Config file, CATEGORY_FEED as
+     *         in the names of raw data files.
+     */
+    public List<String> getFeedNames() {
+        readFeeds();
+        List<String> names = new ArrayList<String>();
+        for (String category: categories) {
+            for (String feed: rssCategoryToFeeds.get(category))
+                names.add(category + "_" + feed);
+        }
+        return names;
+    }
+
+    /* The urls of every feed of the config; readFeeds must have run. */
+    private List<String> getFeedUrls() {
+        List<String> urls = new ArrayList<String>();
+        for (String category: categories) {
+            for (String feed: rssCategoryToFeeds.get(category))
+                urls.add(constructUrl(category, feed));
+        }
+        return urls;
+    }
+
+    /**
+     * Move the scraper to the current day of the calendar it was made
+     * with, for a process that keeps one scraper past midnight.
+     * @modifies dateString
+     */
+    public void updateDate() {
+        dateString = dateFormat.format(calendar.getTime());
+    }
+
+    /* Fill categories and rssCategoryToFeeds from the config. */
+    private void readFeeds() {
         categories = config.getCategories();
         rssCategoryToFeeds = new HashMap<String, List<String>>();
         for (String category: categories) {
@@ -107,43 +223,73 @@ public abstract class RssScraper {
                 feedsToFill.add(feed.getAsString());
             }
         }
+    }
 
-        File rawDir = new File(rawDataDir);
-        rawDir.mkdirs();
-
-        for (String categoryName: categories) {
-            List<String> feeds = rssCategoryToFeeds.get(categoryName);
-            for (String feedName: feeds) {
-                // try three times before we log an error
-                for (int i = 0; i < 3; i++) {
-                    try {
-                        String url = constructUrl(categoryName, feedName);
-                        Document doc = Jsoup.connect(url).get();
-
-                        // write fetched xml to local data
-                        BufferedWriter out = new BufferedWriter(
-                                new OutputStreamWriter(new FileOutputStream(
-                                new File(rawDataDir + dateString + "_"
-                                + categoryName + "_" + feedName
-                                + ".html"), true), ENCODE));
-                        out.write(doc.toString());
-                        out.close();
-
-                        logger.info(
-                                "fetchData(): " + "Fetched {}: {} successfully",
-                                categoryName, feedName);
-                        break;  // stop trying on success
-
-                    } catch (IOException e) {
-                        if (i < 2) continue;  // try again!
-                        logger.error("fetchData(): Failed to download: {}_{}",
-                            categoryName, feedName);
-                        e.printStackTrace();
-                    }
-                }
+    /* Fetch one feed, trying three times before we log an error. */
+    private void fetchFeedWithRetries(String categoryName, String feedName) {
+        for (int i = 0; i < 3; i++) {
+            try {
+                fetchFeed(categoryName, feedName);
+                logger.info("fetchData(): " + "Fetched {}: {} successfully",
+                        categoryName, feedName);
+                break;  // stop trying on success
+
+            // same catch logic for IOException and SocketTimeoutEx.
+            } catch (Exception e) {
+                if (i < 2) continue;  // try again!
+                logger.error("fetchData(): Failed to download: {}_{}",
+                    categoryName, feedName);
+                e.printStackTrace();
             }
         }
-        logger.info("fetchData(): End fetching.");
+    }
+
+    /**
+     * Fetch a single feed and append it to its file in the raw data
+     * directory. Called concurrently for different feeds.
+     * @param categoryName the category the feed belongs to.
+     * @param feedName the name of the feed.
+     * @throws Exception if the feed could not be fetched or stored.
+     */
+    protected void fetchFeed(String categoryName, String feedName)
+            throws Exception {
+        String url = constructUrl(categoryName, feedName);
+        FetchedPage page = fetcher.fetch(url);
+        if (isStoredToday(categoryName, feedName, page))
+            return;
+
+        // write fetched xml to local data
+        writeRawData(categoryName, feedName, page.getBody());
+    }
+
+    /**
+     * @return true if page is unchanged since the last fetch, and that
+     *         fetch is in the raw data file of today already, so storing
+     *         it again would only add copies of the same items.
+     */
+    protected boolean isStoredToday(String categoryName, String feedName,
+            FetchedPage page) {
+        return page.isFromCache()
+                && getRawDataFile(categoryName, feedName).length() > 0;
+    }
+
+    /**
+     * Append the given content to the raw data file of a feed:
+     * .../raw_data/DATE_CATEGORY_FEED.html
+     */
+    protected void writeRawData(String categoryName, String feedName,
+            String content) throws IOException {
+        BufferedWriter out = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(
+                getRawDataFile(categoryName, feedName), true), ENCODE));
+        out.write(content);
+        out.close();
+    }
+
+    /* The raw data file of a feed on dateString. */
+    private File getRawDataFile(String categoryName, String feedName) {
+        return new File(rawDataDir + dateString + "_" + categoryName + "_"
+                + feedName + ".html");
     }
 
     /**
@@ -163,105 +309,531 @@ public abstract class RssScraper {
      *                  a default daily directory instead.
      */
     public void processData(String sourceDir, String targetDir) {
+        seenStories = openDedupStore();
+        earlierStories = new AtomicInteger();
+        try {
+            PipelineManifest manifest = null;
+            Map<String, String> parsedFiles = null;
+            if (sourceDir == null && targetDir == null) {
+                manifest = openManifest(outputLocation);
+                parsedFiles = processHtml(rawDataDir, false, manifest);
+
+            } else if (sourceDir != null && targetDir != null) {
+                outputLocation = targetDir.trim();
+                if (!outputLocation.endsWith(FOLDER_PATH_SEPERATOR))
+                    outputLocation += FOLDER_PATH_SEPERATOR;
+
+                File outputFile = new File(outputLocation);
+                outputFile.mkdirs();
+
+                if (!outputFile.exists())
+                    logger.error("scrape(): "
+                            + "Failure to create target folder.");
+
+                manifest = openManifest(outputLocation);
+                parsedFiles = processHtml(sourceDir, true, manifest);
+            }
 
-        if (sourceDir == null && targetDir == null) {
-            processHtml(rawDataDir, false);
+            if (manifest != null && parsedFiles != null
+                    && parsedFiles.isEmpty()
+                    && hasConfiguredFormat(new File(getDatabaseName()))) {
+                logger.info("processData(): No new raw files; {} is up to "
+                        + "date.", getDatabaseName());
+                recordStories();
+                return;
+            }
+            if (earlierStories.get() > 0)
+                logger.info("processData(): Dropped {} stories scraped on an "
+                        + "earlier day.", earlierStories.get());
+            if (nearDuplicateStories > 0)
+                logger.info("processData(): Dropped {} near duplicates of "
+                        + "other stories.", nearDuplicateStories);
+
+            if (!outputDatabase())
+                return;
+            recordStories();
+            if (manifest != null && parsedFiles != null) {
+                try {
+                    for (Map.Entry<String, String> parsed
+                            : parsedFiles.entrySet())
+                        manifest.add(PipelineManifest.PROCESSED,
+                                parsed.getKey(), parsed.getValue());
+                } catch (IOException e) {
+                    logger.error("processData(): "
+                            + "Failure to update manifest.");
+                    e.printStackTrace();
+                }
+            }
+        } finally {
+            closeDedupStore();
+        }
+    }
+
+    /* Open the store of earlier days' stories; null if it can't be. */
+    private DedupStore openDedupStore() {
+        try {
+            return new DedupStore(new File(config.getDedupFile()));
+        } catch (IOException e) {
+            logger.error("processData(): Can't open {}; keeping stories of "
+                    + "earlier days.", config.getDedupFile());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /*
+     * True if text was first scraped on a day before the one being
+     * processed. Such a story is dropped rather than scraped again. Safe
+     * to call while files are parsed in parallel.
+     */
+    protected boolean isEarlierStory(String text) {
+        if (seenStories == null || text == null || text.length() == 0)
+            return false;
+        int day = seenStories.firstSeen(DedupStore.hash(text));
+        if (day == 0 || day >= DedupStore.day(dateString))
+            return false;
+        earlierStories.incrementAndGet();
+        return true;
+    }
 
-        } else if (sourceDir != null && targetDir != null) {
-            outputLocation = targetDir.trim();
-            if (!outputLocation.endsWith(FOLDER_PATH_SEPERATOR))
-                outputLocation += FOLDER_PATH_SEPERATOR;
+    /* Record the titles and contents of dataMap as seen on dateString. */
+    private void recordStories() {
+        if (seenStories == null)
+            return;
+        int day = DedupStore.day(dateString);
+        try {
+            for (NewsData data : dataMap.values()) {
+                seenStories.record(DedupStore.hash(data.title), day);
+                if (data.content != null && data.content.length() > 0)
+                    seenStories.record(DedupStore.hash(data.content), day);
+            }
+        } catch (IOException e) {
+            logger.error("processData(): Failure to update {}.",
+                    config.getDedupFile());
+            e.printStackTrace();
+        }
+    }
 
-            File outputFile = new File(outputLocation);
-            outputFile.mkdirs();
+    /* Save and close the store of earlier days' stories. */
+    private void closeDedupStore() {
+        if (seenStories == null)
+            return;
+        try {
+            seenStories.close();
+        } catch (IOException e) {
+            logger.error("processData(): Failure to save {}.",
+                    config.getDedupFile());
+            e.printStackTrace();
+        }
+        seenStories = null;
+    }
 
-            if (!outputFile.exists())
-                logger.error("scrape(): "
-                        + "Failure to create target folder.");
+    /* True if the database exists and is in the format of the config. */
+    private boolean hasConfiguredFormat(File database) {
+        if (!database.exists())
+            return false;
+        try {
+            return NewsRecordReader.isNdjson(database) == config.isNdjson();
+        } catch (IOException e) {
+            return false;
+        }
+    }
 
-            processHtml(sourceDir, true);
+    /* Load the manifest of the given directory; null if it can't be read. */
+    private PipelineManifest openManifest(String dir) {
+        try {
+            return new PipelineManifest(new File(dir));
+        } catch (IOException e) {
+            logger.error("openManifest(): Can't read the manifest of {}; "
+                    + "processing every raw file.", dir);
+            e.printStackTrace();
+            return null;
         }
+    }
 
-        outputDatabase();
+    /**
+     * Set the number of threads used to parse raw files in processData.
+     * The output is the same for any number of threads.
+     * @param threads the number of threads; 1 parses the files in turn.
+     */
+    public void setProcessingThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Need at least one thread.");
+        processingThreads = threads;
     }
 
     /**
      * Takes the HTML files from the raw data directory and processes them.
+     * Files are parsed on a fork-join pool when processingThreads > 1; the
+     * results are then merged in file order, so the first item with a given
+     * title or text wins, exactly as when parsing the files in turn.
      * @param dir the directory containing the raw HTML files
      * @param processOnly true if no scraping was done.
      * @modifies duplicateChecker, dataMap
      * @effects initializes and puts appropriate news data into them.
      */
-    protected abstract void processHtml(String dir, boolean processOnly);
+    protected void processHtml(String dir, boolean processOnly) {
+        processHtml(dir, processOnly, null);
+    }
 
-    /* Output the database to a JSON file. */
-    private void outputDatabase() {
-        logger.info("outputDatabase(): Outputting news data.");
+    /**
+     * Like processHtml(dir, processOnly), but when a manifest is given, the
+     * raw files it records as unchanged since they went into rss.data are
+     * skipped; their articles are loaded back from rss.data instead and
+     * keep their ids.
+     * @param manifest the manifest of the output directory, or null to
+     *                 parse every file.
+     * @return the names of the files that were parsed, mapped to their
+     *         PipelineManifest stamps; null if dir can't be listed.
+     * @modifies duplicateChecker, nearDuplicates, dataMap, knownIds
+     */
+    protected Map<String, String> processHtml(String dir, boolean processOnly,
+            PipelineManifest manifest) {
+        logger.info("processHtml(): Start processing HTML.");
+
+        if (!dir.endsWith(FOLDER_PATH_SEPERATOR))
+            dir = dir + FOLDER_PATH_SEPERATOR;
+
+        duplicateChecker = new HashSet<String>();
+        nearDuplicates = newNearDuplicateIndex();
+        nearDuplicateStories = 0;
+        dataMap = new HashMap<String, NewsData>();
+        knownIds = new HashMap<String, Long>();
+
+        // files is a grab of all the files in the given dir.
+        File rawDataFile = new File(dir);
+        String[] files = rawDataFile.list();
+        if (files == null) {
+            logger.error("processHtml(): Can't list {}.", dir);
+            return null;
+        }
+
+        // grab the date string for this folder.
+        if (processOnly && files.length > 0) {
+            String fileDate = getFileDate(files[0]);
+            if (fileDate != null)
+                dateString = fileDate;
+        }
+
+        // stamp the files before parsing, in case they're appended to
+        Map<String, String> toParse = new LinkedHashMap<String, String>();
+        for (String fileName : files)
+            toParse.put(fileName, PipelineManifest.stamp(new File(dir + fileName)));
+        if (manifest != null)
+            skipProcessedFiles(toParse, manifest);
+
+        String[] parseFiles = toParse.keySet().toArray(new String[0]);
+        if (processingThreads > 1) {
+            processFilesInParallel(dir, parseFiles, processOnly);
+        } else {
+            for (String fileName : parseFiles) {
+                mergeItems(processFile(dir, fileName, processOnly));
+            }
+        }
+        logger.info("processHtml(): End processing HTML.");
+        return toParse;
+    }
 
-        // load id number from last time
-        long prevCount;
-        long currentCount;
-        File idCountFile = new File(ID_COUNT_FILE_NAME);
+    /*
+     * Drop the files the manifest records as already in rss.data from
+     * toParse, and load rss.data. If rss.data can't be loaded, nothing is
+     * dropped and the manifest is reset.
+     */
+    private void skipProcessedFiles(Map<String, String> toParse,
+            PipelineManifest manifest) {
+        Set<String> processed = manifest.keys(PipelineManifest.PROCESSED);
+        if (processed.isEmpty())
+            return;
+
+        File database = new File(getDatabaseName());
+        if (!database.exists() || !loadDatabase(database)) {
+            logger.info("processHtml(): Can't load {}; processing every raw "
+                    + "file again.", database);
+            dataMap.clear();
+            duplicateChecker.clear();
+            nearDuplicates = newNearDuplicateIndex();
+            knownIds.clear();
+            try {
+                for (String fileName : processed)
+                    manifest.reset(PipelineManifest.PROCESSED, fileName);
+            } catch (IOException e) {
+                logger.error("processHtml(): " + "Failure to reset manifest.");
+                e.printStackTrace();
+            }
+            return;
+        }
+
+        Iterator<Map.Entry<String, String>> it = toParse.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, String> file = it.next();
+            if (file.getValue().equals(manifest.get(
+                    PipelineManifest.PROCESSED, file.getKey())))
+                it.remove();
+        }
+        logger.info("processHtml(): Loaded {} articles from {}; {} raw files "
+                + "are new or changed.", new Object[] {dataMap.size(),
+                database, toParse.size()});
+    }
+
+    /*
+     * Load the articles of an earlier rss.data into dataMap and knownIds,
+     * and their texts into duplicateChecker and nearDuplicates, one article
+     * at a time. Returns false on failure.
+     */
+    private boolean loadDatabase(File database) {
+        Gson gson = new Gson();
         try {
-            Scanner sc = new Scanner(idCountFile);
-            sc.nextInt();
-            prevCount = sc.nextLong();
-            currentCount = prevCount + 1;
-        } catch (FileNotFoundException e) {
-            logger.error("outputDatabase(): Can't find idCount file.");
-            currentCount = -1;
-            prevCount = -1;
+            NewsRecordReader in = new NewsRecordReader(database);
+            try {
+                JsonObject article;
+                while ((article = in.next()) != null) {
+                    if (in.getId() == null)
+                        return false;
+                    NewsData data = gson.fromJson(article, NewsData.class);
+                    dataMap.put(data.title, data);
+                    knownIds.put(data.title, in.getId());
+                    for (String text : new String[] {data.content,
+                            data.imgAlt, data.imgTitle}) {
+                        if (text != null && text.length() > 0)
+                            duplicateChecker.add(text);
+                    }
+                    if (nearDuplicates != null && data.content != null
+                            && data.content.length() > 0)
+                        nearDuplicates.add(
+                                SimHashIndex.fingerprint(data.content));
+                }
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        } catch (JsonParseException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+
+    /*
+     * Parse every file on a fork-join pool, then merge the per-file results
+     * in the order of files.
+     */
+    private void processFilesInParallel(final String dir, String[] files,
+            final boolean processOnly) {
+        List<Callable<List<ParsedItem>>> tasks =
+                new ArrayList<Callable<List<ParsedItem>>>();
+        for (final String fileName : files) {
+            tasks.add(new Callable<List<ParsedItem>>() {
+                public List<ParsedItem> call() {
+                    return processFile(dir, fileName, processOnly);
+                }
+            });
         }
 
+        ForkJoinPool pool = new ForkJoinPool(processingThreads);
+        try {
+            for (Future<List<ParsedItem>> result : pool.invokeAll(tasks)) {
+                mergeItems(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("processHtml(): Interrupted while processing.");
+        } catch (ExecutionException e) {
+            // same as a failure while parsing the files in turn
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Parse the items of one raw HTML file. Must not modify dataMap or
+     * duplicateChecker: files may be parsed concurrently.
+     * @param dir the directory containing the raw HTML files, ending in "/".
+     * @param fileName the name of the file to parse.
+     * @param processOnly true if no scraping was done.
+     * @return the items of the file, in the order they appear.
+     */
+    protected abstract List<ParsedItem> processFile(String dir,
+            String fileName, boolean processOnly);
+
+    /**
+     * @return true if there is no need to parse an item with the given
+     *         title: it is already known to be in dataMap, which is only
+     *         checked when files are parsed in turn, or an earlier day had
+     *         it.
+     */
+    protected boolean isKnownTitle(String title) {
+        return (processingThreads <= 1 && dataMap.containsKey(title))
+                || isEarlierStory(title);
+    }
+
+    /* The index of near duplicates of the config; null if it keeps them. */
+    private SimHashIndex newNearDuplicateIndex() {
+        int distance = config.getNearDuplicateDistance();
+        return distance < 0 ? null : new SimHashIndex(distance);
+    }
+
+    /*
+     * True if content is a near duplicate of a content in dataMap, say the
+     * same wire story with another dateline; if not, its fingerprint is
+     * added so later copies are found.
+     */
+    private boolean isNearDuplicate(String content) {
+        if (nearDuplicates == null || content.length() == 0)
+            return false;
+        long fingerprint = SimHashIndex.fingerprint(content);
+        if (nearDuplicates.containsNear(fingerprint)) {
+            nearDuplicateStories++;
+            return true;
+        }
+        nearDuplicates.add(fingerprint);
+        return false;
+    }
+
+    /* Add the parsed items of one file to dataMap, skipping duplicates. */
+    private void mergeItems(List<ParsedItem> parsedItems) {
+        for (ParsedItem parsed : parsedItems) {
+            NewsData data = parsed.data;
+            if (dataMap.containsKey(data.title))
+                continue;
+
+            if (parsed.content != null) {
+                if (duplicateChecker.contains(parsed.content)
+                        || isEarlierStory(parsed.content)
+                        || isNearDuplicate(parsed.content))
+                    continue;
+                duplicateChecker.add(parsed.content);
+                data.content = parsed.content;
+            }
+
+            if (parsed.imgAlt != null
+                    && !duplicateChecker.contains(parsed.imgAlt)) {
+                data.imgAlt = parsed.imgAlt;
+                duplicateChecker.add(parsed.imgAlt);
+            }
+
+            if (parsed.imgTitle != null
+                    && !duplicateChecker.contains(parsed.imgTitle)) {
+                data.imgTitle = parsed.imgTitle;
+                duplicateChecker.add(parsed.imgTitle);
+            }
+
+            dataMap.put(data.title, data);
+        }
+    }
+
+    /* Returns the name of the rss.data file of dateString. */
+    private String getDatabaseName() {
+        return outputLocation + "data/" + dateString + "_"
+                + OUTPUT_DATABASE_NAME;
+    }
+
+    /*
+     * Output the database to a JSON file. Articles in knownIds keep their
+     * ids; the others get new ones. Returns true if the file was written.
+     */
+    private boolean outputDatabase() {
+        logger.info("outputDatabase(): Outputting news data.");
+
+        // number the new articles with one reservation
+        int newArticles = 0;
+        for (NewsData data : dataMap.values()) {
+            if (!knownIds.containsKey(data.title))
+                newArticles++;
+        }
+        long currentCount = 0;
+        if (newArticles > 0) {
+            try {
+                currentCount = idAllocator.reserve(newArticles);
+            } catch (IOException e) {
+                logger.error("outputDatabase(): " + "Failure to reserve ids.");
+                e.printStackTrace();
+                return false;
+            }
+        }
+
+        boolean written = false;
+        File tmpFile = null;
         try {
 
             String dataLocation = outputLocation + "data/";
             File f = new File(dataLocation);
             f.mkdirs();
 
-            String rssData = dataLocation + dateString + "_"
-                    + OUTPUT_DATABASE_NAME;
+            String rssData = getDatabaseName();
             File dataFile = new File(rssData);
-            dataFile.createNewFile();
 
             // not using JSON since converting json to string doesn't support
-            // unicode
-            StringBuilder sb = new StringBuilder();
-            sb.append("{");
-            String seperator = ", ";
-            for (String title : dataMap.keySet()) {
-                sb.append("\"" + currentCount++ + "\": "
-                        + dataMap.get(title).toJsonString() + seperator);
-            }
-            // fence post problem
-            if (!dataMap.isEmpty())
-                sb.delete(sb.length() - seperator.length(), sb.length());
-
-            sb.append("}");
+            // unicode. Each entry is written out as soon as it is made, so
+            // the whole database is never held as one string; it goes to a
+            // temporary file first so a failed run can't leave half a
+            // database behind. The temporary file is kept out of data/,
+            // which the extractor reads.
+            tmpFile = new File(outputLocation + dataFile.getName() + ".tmp");
             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
-                    new FileOutputStream(new File(rssData)), ENCODE));
-            if (sb.length() < 100)
+                    new FileOutputStream(tmpFile), ENCODE));
+            try {
+                if (config.isNdjson())
+                    writeLines(out, currentCount);
+                else
+                    writeObject(out, currentCount);
+            } finally {
+                out.close();
+            }
+            if (dataMap.isEmpty())
                 logger.error("outputDatabase(): " + "Output data is too short.");
-            out.write(sb.toString());
-            out.close();
+            if (!tmpFile.renameTo(dataFile)) {
+                dataFile.delete();
+                if (!tmpFile.renameTo(dataFile))
+                    throw new IOException("Can't rename " + tmpFile + ".");
+            }
+            written = true;
 
         } catch (Exception e) {
             logger.error("outputDatabase(): " + "Failure to output data.");
             e.printStackTrace();
+        } finally {
+            if (!written && tmpFile != null)
+                tmpFile.delete();
         }
 
-        // write the new id count to file
-        FileWriter idCountStream;
-        try {
-            idCountStream = new FileWriter(ID_COUNT_FILE_NAME);
-            BufferedWriter idOut = new BufferedWriter(idCountStream);
-            idOut.write(prevCount + " " + currentCount);
-            idOut.close();
-        } catch (IOException e) {
-            logger.error("outputDatabase(): " + "Failure to increase id count.");
-            e.printStackTrace();
-        }
         logger.info("outputDatabase(): Finished outputting news data.");
+        return written;
+    }
+
+    /*
+     * Write dataMap as one json object keyed by id, numbering new articles
+     * from nextId.
+     */
+    private void writeObject(Writer out, long nextId) throws IOException {
+        out.write("{");
+        String seperator = ", ";
+        boolean first = true;
+        for (NewsData data : dataMap.values()) {
+            // fence post problem
+            if (!first)
+                out.write(seperator);
+            first = false;
+            Long id = knownIds.get(data.title);
+            out.write("\"" + (id != null ? id : nextId++) + "\": ");
+            data.writeJson(out);
+        }
+        out.write("}");
+    }
+
+    /*
+     * Write dataMap one article per line, numbering new articles from
+     * nextId.
+     */
+    private void writeLines(Writer out, long nextId) throws IOException {
+        for (NewsData data : dataMap.values()) {
+            Long id = knownIds.get(data.title);
+            data.writeJsonLine(out, id != null ? id : nextId++);
+        }
     }
 
     /*
@@ -304,6 +876,30 @@ public abstract class RssScraper {
         }
     }
 
+    /* Open the given raw file for reading item by item; null on failure. */
+    protected RssItemReader openItemReader(String fileName) {
+        try {
+            return new RssItemReader(new File(fileName), ENCODE);
+        } catch (IOException e) {
+            logger.error("openItemReader(): " + "Failure to load file: {}",
+                    fileName);
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /* Return the next item from the reader, or null if there are no more. */
+    protected Element nextItem(RssItemReader reader) {
+        try {
+            return reader.nextItem();
+        } catch (IOException e) {
+            logger.error("nextItem(): " + "Failure to read item {}.",
+                    reader.getItemCount() + 1);
+            e.printStackTrace();
+            return null;
+        }
+    }
+
     /* Load file to a string then return it. */
     protected String getFileContent(String fileName, String encode) {
         StringBuilder sb = new StringBuilder();
@@ -334,7 +930,10 @@ public abstract class RssScraper {
         }
         Date d = null;
         try {
-            d = dateFormat.parse(dateString);
+            // DateFormat isn't thread-safe and files may be parsed in parallel
+            synchronized (dateFormat) {
+                d = dateFormat.parse(dateString);
+            }
         } catch (ParseException e) {
             e.printStackTrace();
         }
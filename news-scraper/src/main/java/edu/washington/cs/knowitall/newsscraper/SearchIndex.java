@@ -0,0 +1,578 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.stream.JsonReader;
+
+/**
+ * An inverted index over the extracted data, for searching articles by the
+ * words of their title and content and extractions by the words of their
+ * arguments and relation, without scanning the data files.
+ *
+ * Like the ExtractionStore, the index has a directory per date, a segment,
+ * written as a whole from the extracted data file of that date:
+ *
+ *  - terms.dat, every term, "field \t word", in sorted order, each a 4 byte
+ *    length and its UTF-8 bytes; terms.off, for each term the 8 byte
+ *    offsets of the term in terms.dat and of its postings in postings.dat,
+ *    so a term is found by binary search without reading the whole list;
+ *  - postings.dat, for each term the number of documents it is in and
+ *    their numbers, in order, as the gaps between them; all varints, 7 bits
+ *    a byte, low bits first;
+ *  - articles.dat and extractions.dat, the fields a hit is made of, and
+ *    articles.off and extractions.off, the 8 byte offset of each record.
+ *
+ * Documents are numbered in the order of the extracted data file: articles
+ * on their own and extractions on their own. Words are the runs of letters
+ * and digits, in lower case; a search matches the documents that have
+ * every word of the query.
+ */
+public class SearchIndex {
+
+    /** Fields of the index. */
+    private static final String TITLE = "title";
+    private static final String CONTENT = "content";
+    private static final String ARG1 = "arg1";
+    private static final String RELATION = "relation";
+    private static final String ARG2 = "arg2";
+
+    private static final String TERMS_FILE = "terms.dat";
+    private static final String TERM_OFFSETS_FILE = "terms.off";
+    private static final String POSTINGS_FILE = "postings.dat";
+    private static final String ARTICLES_FILE = "articles.dat";
+    private static final String ARTICLE_OFFSETS_FILE = "articles.off";
+    private static final String EXTRACTIONS_FILE = "extractions.dat";
+    private static final String EXTRACTION_OFFSETS_FILE = "extractions.off";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String ENCODE = "UTF-8";
+
+    private final File dir;
+
+    /** date -> its segment, opened when first searched. */
+    private final Map<String, Segment> segments;
+
+    /** @param dir the directory of the index; created when written to. */
+    public SearchIndex(File dir) {
+        this.dir = dir;
+        segments = new HashMap<String, Segment>();
+    }
+
+    /** A matching article. */
+    public static class ArticleHit {
+        /** null if the data file doesn't give ids. */
+        public Long id;
+        public String date;
+        public String title;
+        public String url;
+        public String category;
+    }
+
+    /** @return true if the index has a segment for date. */
+    public boolean has(String date) {
+        return new File(dir, date).isDirectory();
+    }
+
+    /**
+     * @param query the words to look for in the title or content.
+     * @param startDate the first date, "yyyy-MM-dd"; null for all time.
+     * @param endDate the last date; null for all time.
+     * @param limit the most hits to return.
+     * @return the articles that have every word of query in their title or
+     *         content, oldest first; none if query has no words.
+     * @throws IOException if the index can't be read.
+     */
+    public List<ArticleHit> searchArticles(String query, String startDate,
+            String endDate, int limit) throws IOException {
+        List<String> words = tokenize(query);
+        List<ArticleHit> hits = new ArrayList<ArticleHit>();
+        if (words.isEmpty())
+            return hits;
+
+        for (String date : getDates(startDate, endDate)) {
+            Segment segment = getSegment(date);
+            int[] matches = null;
+            for (String word : words) {
+                int[] either = union(segment.postings(TITLE + "\t" + word),
+                        segment.postings(CONTENT + "\t" + word));
+                matches = matches == null ? either : intersect(matches, either);
+            }
+            for (int article : matches) {
+                if (hits.size() == limit)
+                    return hits;
+                hits.add(segment.article(article));
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * @param arg1 the words to look for in arg1; null or empty for any.
+     * @param relation the words to look for in the relation.
+     * @param arg2 the words to look for in arg2.
+     * @param startDate the first date, "yyyy-MM-dd"; null for all time.
+     * @param endDate the last date; null for all time.
+     * @param limit the most hits to return.
+     * @return the extractions that have every given word in its field,
+     *         oldest first; none if no words are given.
+     * @throws IOException if the index can't be read.
+     */
+    public List<FormattedNewsData> searchExtractions(String arg1,
+            String relation, String arg2, String startDate, String endDate,
+            int limit) throws IOException {
+        List<String> terms = new ArrayList<String>();
+        for (String word : tokenize(arg1))
+            terms.add(ARG1 + "\t" + word);
+        for (String word : tokenize(relation))
+            terms.add(RELATION + "\t" + word);
+        for (String word : tokenize(arg2))
+            terms.add(ARG2 + "\t" + word);
+        List<FormattedNewsData> hits = new ArrayList<FormattedNewsData>();
+        if (terms.isEmpty())
+            return hits;
+
+        for (String date : getDates(startDate, endDate)) {
+            Segment segment = getSegment(date);
+            int[] matches = null;
+            for (String term : terms) {
+                int[] postings = segment.postings(term);
+                matches = matches == null ? postings : intersect(matches, postings);
+            }
+            for (int extraction : matches) {
+                if (hits.size() == limit)
+                    return hits;
+                hits.add(segment.extraction(extraction));
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * @return the words of text: the runs of letters and digits, in lower
+     *         case; none if text is null.
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<String>();
+        if (text == null)
+            return words;
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean inWord = i < text.length()
+                    && Character.isLetterOrDigit(text.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /* The dates that have a segment, between the dates, oldest first. */
+    private List<String> getDates(String startDate, String endDate) {
+        FormatFilter filter = new FormatFilter(null, startDate, endDate, -1);
+        List<String> dates = new ArrayList<String>();
+        String[] names = dir.list();
+        if (names == null)
+            return dates;
+        for (String name : names) {
+            if (!name.endsWith(TEMP_SUFFIX) && filter.acceptsDate(name)
+                    && new File(dir, name).isDirectory())
+                dates.add(name);
+        }
+        Collections.sort(dates);
+        return dates;
+    }
+
+    /* The segment of date, opened again if it was written since. */
+    private synchronized Segment getSegment(String date) throws IOException {
+        File segmentDir = new File(dir, date);
+        Segment segment = segments.get(date);
+        if (segment == null || segment.stamp != segmentDir.lastModified()) {
+            segment = new Segment(date, segmentDir);
+            segments.put(date, segment);
+        }
+        return segment;
+    }
+
+    /* The numbers in both a and b, which are sorted. */
+    private static int[] intersect(int[] a, int[] b) {
+        int[] both = new int[Math.min(a.length, b.length)];
+        int size = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length;) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                both[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(both, size);
+    }
+
+    /* The numbers in a or b, which are sorted, once each. */
+    private static int[] union(int[] a, int[] b) {
+        int[] either = new int[a.length + b.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                either[size++] = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                either[size++] = b[j++];
+            } else {
+                either[size++] = a[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(either, size);
+    }
+
+    /**
+     * Replaces the segment of date with an index of extractedFile, which
+     * may be in any of the data formats.
+     * @throws IOException if the file can't be read or the index written;
+     *                     the old segment of date is then kept.
+     */
+    void write(String date, File extractedFile) throws IOException {
+        File temp = new File(dir, date + TEMP_SUFFIX);
+        ExtractionStore.delete(temp);
+        if (!temp.mkdirs())
+            throw new IOException("Can't create " + temp + ".");
+
+        final SegmentWriter writer = new SegmentWriter(temp);
+        NewsRecordReader in = new NewsRecordReader(extractedFile);
+        try {
+            NewsRecordReader.ArticleHandler handler =
+                    new NewsRecordReader.ArticleHandler() {
+                public void read(Long id, JsonReader article) throws IOException {
+                    writer.addArticle(id, article);
+                }
+            };
+            while (in.next(handler))
+                ;
+            writer.finish();
+        } finally {
+            in.close();
+            writer.close();
+        }
+
+        File target = new File(dir, date);
+        ExtractionStore.delete(target);
+        if (!temp.renameTo(target))
+            throw new IOException("Can't move " + temp + " to " + target + ".");
+    }
+
+    /* Writes a varint: 7 bits a byte, low bits first. */
+    private static void writeVarint(DataOutputStream out, int value)
+            throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /* Reads a varint from the position of in. */
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0;; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0)
+                return value;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String str)
+            throws IOException {
+        byte[] bytes = (str == null ? "" : str).getBytes(ENCODE);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /* Reads a string written by writeString from the position of in. */
+    private static String readString(ByteBuffer in) throws IOException {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, ENCODE);
+    }
+
+    /* The numbers of the documents a term is in, in order. */
+    private static class Postings {
+        int[] documents = new int[4];
+        int size = 0;
+
+        void add(int document) {
+            if (size > 0 && documents[size - 1] == document)
+                return;
+            if (size == documents.length)
+                documents = Arrays.copyOf(documents, size * 2);
+            documents[size++] = document;
+        }
+    }
+
+    /* Writes a segment: the stored records as they come, the terms last. */
+    private static class SegmentWriter {
+
+        private final File dir;
+        private final Map<String, Postings> postings;
+        private final DataOutputStream articles;
+        private final DataOutputStream articleOffsets;
+        private final DataOutputStream extractions;
+        private final DataOutputStream extractionOffsets;
+        private int articleCount = 0;
+        private int extractionCount = 0;
+
+        SegmentWriter(File dir) throws IOException {
+            this.dir = dir;
+            postings = new HashMap<String, Postings>();
+            articles = open(ARTICLES_FILE);
+            articleOffsets = open(ARTICLE_OFFSETS_FILE);
+            extractions = open(EXTRACTIONS_FILE);
+            extractionOffsets = open(EXTRACTION_OFFSETS_FILE);
+        }
+
+        /* Indexes the article that article is at, and its extractions. */
+        void addArticle(Long id, JsonReader article) throws IOException {
+            String title = null;
+            String url = null;
+            String category = null;
+            String content = null;
+            List<String[]> rows = new ArrayList<String[]>();
+            article.beginObject();
+            while (article.hasNext()) {
+                String name = article.nextName();
+                if (name.equals("title"))
+                    title = article.nextString();
+                else if (name.equals("url"))
+                    url = article.nextString();
+                else if (name.equals("category"))
+                    category = article.nextString();
+                else if (name.equals("content"))
+                    content = article.nextString();
+                else if (name.equals("extractions"))
+                    readExtractions(article, rows);
+                else
+                    article.skipValue();
+            }
+            article.endObject();
+
+            int number = articleCount++;
+            add(TITLE, title, number);
+            add(CONTENT, content, number);
+            articleOffsets.writeLong(articles.size());
+            articles.writeLong(id == null ? -1 : id);
+            writeString(articles, title);
+            writeString(articles, url);
+            writeString(articles, category);
+
+            for (String[] row : rows) {
+                int extraction = extractionCount++;
+                add(ARG1, row[1], extraction);
+                add(RELATION, row[2], extraction);
+                add(ARG2, row[3], extraction);
+                extractionOffsets.writeLong(extractions.size());
+                extractions.writeInt(number);
+                for (int i = 0; i < 4; i++)
+                    writeString(extractions, row[i]);
+                extractions.writeDouble(Double.parseDouble(row[4]));
+            }
+        }
+
+        /*
+         * Adds {sent, arg1, relation, arg2, confidence} to rows for each
+         * extraction of the array article is at.
+         */
+        private void readExtractions(JsonReader article, List<String[]> rows)
+                throws IOException {
+            List<String> fields = Arrays.asList("sent", ARG1, RELATION, ARG2,
+                    "confidence");
+            article.beginArray();
+            while (article.hasNext()) {
+                String[] row = new String[fields.size()];
+                article.beginObject();
+                while (article.hasNext()) {
+                    int field = fields.indexOf(article.nextName());
+                    if (field >= 0)
+                        row[field] = article.nextString();
+                    else
+                        article.skipValue();
+                }
+                article.endObject();
+                if (row[4] == null)
+                    throw new IOException("Extraction without a confidence.");
+                rows.add(row);
+            }
+            article.endArray();
+        }
+
+        private void add(String field, String text, int document) {
+            for (String word : tokenize(text)) {
+                String term = field + "\t" + word;
+                Postings list = postings.get(term);
+                if (list == null) {
+                    list = new Postings();
+                    postings.put(term, list);
+                }
+                list.add(document);
+            }
+        }
+
+        /* Writes the terms and their postings. */
+        void finish() throws IOException {
+            List<String> terms = new ArrayList<String>(postings.keySet());
+            Collections.sort(terms);
+            DataOutputStream termsOut = open(TERMS_FILE);
+            DataOutputStream offsets = open(TERM_OFFSETS_FILE);
+            DataOutputStream postingsOut = open(POSTINGS_FILE);
+            try {
+                for (String term : terms) {
+                    offsets.writeLong(termsOut.size());
+                    offsets.writeLong(postingsOut.size());
+                    writeString(termsOut, term);
+                    Postings list = postings.get(term);
+                    writeVarint(postingsOut, list.size);
+                    int last = 0;
+                    for (int i = 0; i < list.size; i++) {
+                        writeVarint(postingsOut, list.documents[i] - last);
+                        last = list.documents[i];
+                    }
+                }
+            } finally {
+                termsOut.close();
+                offsets.close();
+                postingsOut.close();
+            }
+        }
+
+        void close() throws IOException {
+            articles.close();
+            articleOffsets.close();
+            extractions.close();
+            extractionOffsets.close();
+        }
+
+        private DataOutputStream open(String name) throws IOException {
+            return new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(new File(dir, name))));
+        }
+    }
+
+    /* A segment on disk, mapped into memory and read where it is needed. */
+    private static class Segment {
+
+        final String date;
+        final long stamp;
+        private final ByteBuffer terms;
+        private final ByteBuffer termOffsets;
+        private final ByteBuffer postings;
+        private final ByteBuffer articles;
+        private final ByteBuffer articleOffsets;
+        private final ByteBuffer extractions;
+        private final ByteBuffer extractionOffsets;
+
+        Segment(String date, File dir) throws IOException {
+            this.date = date;
+            stamp = dir.lastModified();
+            terms = map(new File(dir, TERMS_FILE));
+            termOffsets = map(new File(dir, TERM_OFFSETS_FILE));
+            postings = map(new File(dir, POSTINGS_FILE));
+            articles = map(new File(dir, ARTICLES_FILE));
+            articleOffsets = map(new File(dir, ARTICLE_OFFSETS_FILE));
+            extractions = map(new File(dir, EXTRACTIONS_FILE));
+            extractionOffsets = map(new File(dir, EXTRACTION_OFFSETS_FILE));
+        }
+
+        /* The documents term is in, in order; none if it isn't indexed. */
+        int[] postings(String term) throws IOException {
+            int low = 0;
+            int high = termOffsets.capacity() / 16 - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int order = readString(at(terms,
+                        termOffsets.getLong(middle * 16))).compareTo(term);
+                if (order < 0) {
+                    low = middle + 1;
+                } else if (order > 0) {
+                    high = middle - 1;
+                } else {
+                    ByteBuffer in = at(postings,
+                            termOffsets.getLong(middle * 16 + 8));
+                    int[] documents = new int[readVarint(in)];
+                    int last = 0;
+                    for (int i = 0; i < documents.length; i++) {
+                        last += readVarint(in);
+                        documents[i] = last;
+                    }
+                    return documents;
+                }
+            }
+            return new int[0];
+        }
+
+        ArticleHit article(int number) throws IOException {
+            ByteBuffer in = at(articles, articleOffsets.getLong(number * 8));
+            ArticleHit hit = new ArticleHit();
+            long id = in.getLong();
+            hit.id = id < 0 ? null : id;
+            hit.date = date;
+            hit.title = readString(in);
+            hit.url = readString(in);
+            hit.category = readString(in);
+            return hit;
+        }
+
+        FormattedNewsData extraction(int number) throws IOException {
+            ByteBuffer in = at(extractions,
+                    extractionOffsets.getLong(number * 8));
+            ArticleHit article = article(in.getInt());
+            FormattedNewsData hit = new FormattedNewsData();
+            hit.id = article.id;
+            hit.date = date;
+            hit.title = article.title;
+            hit.url = article.url;
+            hit.category = article.category;
+            hit.sentence = readString(in);
+            hit.arg1 = readString(in);
+            hit.relation = readString(in);
+            hit.arg2 = readString(in);
+            hit.confidence = in.getDouble();
+            return hit;
+        }
+
+        /* A view of buffer from offset on, so readers don't share a position. */
+        private static ByteBuffer at(ByteBuffer buffer, long offset) {
+            ByteBuffer view = buffer.duplicate();
+            view.position((int) offset);
+            return view;
+        }
+
+        private static ByteBuffer map(File file) throws IOException {
+            RandomAccessFile in = new RandomAccessFile(file, "r");
+            try {
+                return in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0,
+                        in.length());
+            } finally {
+                in.close();
+            }
+        }
+    }
+}
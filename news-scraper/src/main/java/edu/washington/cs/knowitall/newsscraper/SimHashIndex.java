@@ -0,0 +1,126 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Finds near duplicates of a text: the copies of one wire story that only
+ * differ in a byline, a dateline or a cut off last sentence.
+ *
+ * A text is reduced to a 64-bit SimHash fingerprint of its words, which
+ * changes in only a few bits when a few words change. Two texts are near
+ * duplicates when their fingerprints differ in at most maxDistance bits.
+ * To find those without comparing against every fingerprint, the 64 bits
+ * are cut into maxDistance + 1 bands, and each fingerprint is filed under
+ * every band: two fingerprints that close must agree on at least one whole
+ * band, so only the fingerprints sharing a band are compared.
+ */
+class SimHashIndex {
+
+    /**
+     * The dateline a wire story starts with in some feeds and not in others:
+     * "WASHINGTON (Reuters) - ", "NEW YORK (AP) \u2014 ".
+     */
+    private static final Pattern DATELINE = Pattern.compile(
+            "^\\s*[A-Z][A-Z .,'/-]{0,40}\\([A-Za-z .-]{1,20}\\)\\s*\\S?\\s+");
+
+    private final int maxDistance;
+
+    /** The first bit of each band, and one past the last band. */
+    private final int[] bandStarts;
+
+    /** For each band: its bits -> the fingerprints with those bits. */
+    private final List<Map<Long, List<Long>>> bands;
+
+    private int size;
+
+    /**
+     * @param maxDistance the most bits two near duplicates differ in, from
+     *                    0 to 63.
+     */
+    SimHashIndex(int maxDistance) {
+        if (maxDistance < 0 || maxDistance > 63)
+            throw new IllegalArgumentException("No distance " + maxDistance);
+        this.maxDistance = maxDistance;
+        int bandCount = maxDistance + 1;
+        bandStarts = new int[bandCount + 1];
+        for (int band = 0; band <= bandCount; band++)
+            bandStarts[band] = band * 64 / bandCount;
+        bands = new ArrayList<Map<Long, List<Long>>>(bandCount);
+        for (int band = 0; band < bandCount; band++)
+            bands.add(new HashMap<Long, List<Long>>());
+    }
+
+    /**
+     * @return the SimHash of the words of text after its dateline, with
+     *         each pair of adjacent words as a feature, so word order
+     *         counts; 0 if text has no words.
+     */
+    static long fingerprint(String text) {
+        List<String> words = SearchIndex.tokenize(
+                DATELINE.matcher(text).replaceFirst(""));
+        List<String> features = new ArrayList<String>();
+        if (words.size() == 1)
+            features.add(words.get(0));
+        for (int i = 0; i + 1 < words.size(); i++)
+            features.add(words.get(i) + " " + words.get(i + 1));
+
+        int[] weights = new int[64];
+        for (String feature : features) {
+            long hash = DedupStore.hash(feature);
+            for (int bit = 0; bit < 64; bit++)
+                weights[bit] += ((hash >>> bit) & 1) == 1 ? 1 : -1;
+        }
+        long fingerprint = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0)
+                fingerprint |= 1L << bit;
+        }
+        return fingerprint;
+    }
+
+    /** @return true if a fingerprint within maxDistance bits was added. */
+    boolean containsNear(long fingerprint) {
+        for (int band = 0; band < bands.size(); band++) {
+            List<Long> candidates = bands.get(band).get(
+                    bandBits(fingerprint, band));
+            if (candidates == null)
+                continue;
+            for (long candidate : candidates) {
+                if (Long.bitCount(candidate ^ fingerprint) <= maxDistance)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /** Files fingerprint under each of its bands. */
+    void add(long fingerprint) {
+        for (int band = 0; band < bands.size(); band++) {
+            Long bits = bandBits(fingerprint, band);
+            List<Long> filed = bands.get(band).get(bits);
+            if (filed == null) {
+                filed = new ArrayList<Long>(1);
+                bands.get(band).put(bits, filed);
+            }
+            filed.add(fingerprint);
+        }
+        size++;
+    }
+
+    /** @return the number of fingerprints added. */
+    int size() {
+        return size;
+    }
+
+    /* The bits of band in fingerprint. */
+    private long bandBits(long fingerprint, int band) {
+        int start = bandStarts[band];
+        int width = bandStarts[band + 1] - start;
+        long mask = width == 64 ? -1L : (1L << width) - 1;
+        return (fingerprint >>> start) & mask;
+    }
+}
@@ -1,31 +1,35 @@
 package edu.washington.cs.knowitall.newsscraper;
 
-import java.lang.reflect.Field;
+import java.io.IOException;
 
 public class SimpleNewsData {
     public String title;
     public String url;
-    
+
+    /**
+     * @return this object as a json string
+     */
     public String toString(){
         StringBuilder sb = new StringBuilder();
-        String seperator = ", ";
-        sb.append("{");
-        Field[] fields = this.getClass().getFields();
-        for(Field field : fields){
-            String fieldName = field.getName();
-            sb.append("\""+ fieldName + "\"");
-            sb.append(":");
-            try {
-                sb.append("\"" + field.get(this).toString().replace("\"", "\\\"") + "\"");
-            } catch (IllegalArgumentException excp) {
-                excp.printStackTrace();
-            } catch (IllegalAccessException excp) {
-                excp.printStackTrace();
-            }
-            sb.append(seperator);
+        try {
+            writeJson(sb);
+        } catch (IOException e) {
+            // StringBuilder doesn't throw
+            throw new IllegalStateException(e);
         }
-        
         return sb.toString();
     }
 
+    /**
+     * Writes this object as a json string to out.
+     * @param out where to write the json
+     * @throws IOException if out fails
+     */
+    public void writeJson(Appendable out) throws IOException {
+        out.append("{");
+        NewsData.writeField(out, "title", title, false);
+        NewsData.writeField(out, "url", url, true);
+        out.append("}");
+    }
+
 }
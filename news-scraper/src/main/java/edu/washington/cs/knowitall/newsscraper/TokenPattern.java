@@ -0,0 +1,334 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A hand-built stand-in for the date, time and city regexes of
+ * ArticleTextCleaner. It matches exactly what the regex it replaces
+ * matches, trying the same alternatives in the same order, but:
+ *
+ *  - month, day and time zone names are looked up in a TokenTrie, one walk
+ *    per position, rather than tried one alternative at a time, and
+ *  - a leading ".*" is matched by scanning the candidate start positions
+ *    from the right once, instead of letting the regex engine backtrack
+ *    into it from every position where find() retries, and
+ *  - a second ".*", in ".*a.*b", only needs an a somewhere before the last
+ *    b, which one more scan from the left finds.
+ *
+ * Together these keep the cleaner linear in the length of the text; the
+ * regexes were quadratic or worse on long runs of uppercase words.
+ *
+ * Patterns are built from the static element methods, which mirror the
+ * regex constructs they stand for: literal("on "), digits(1, 2) for
+ * [0-9]{1,2}, optional(...) for (...)?, and so on. Every element is greedy
+ * and backtracks like its regex counterpart.
+ */
+final class TokenPattern {
+
+    /** The rest of a pattern after an element; true ends the search. */
+    interface Next {
+        boolean at(int pos);
+    }
+
+    /** A piece of a pattern. */
+    abstract static class Element {
+        /**
+         * Tries every way this element matches text at pos, in the order
+         * the regex would, and hands each end position to next.
+         * @return true as soon as next returns true.
+         */
+        abstract boolean match(String text, int pos, Next next);
+    }
+
+    private final boolean anchored;
+    private final Element body;
+    // what ".*a.*body" needs before body on its line, or null
+    private final Element after;
+
+    private TokenPattern(boolean anchored, Element body, Element after) {
+        this.anchored = anchored;
+        this.body = body;
+        this.after = after;
+    }
+
+    /** A pattern that must match at the start of the text, "^...". */
+    static TokenPattern atStart(Element... elements) {
+        return new TokenPattern(true, sequence(elements), null);
+    }
+
+    /** A pattern that matches through its last occurrence, ".*...". */
+    static TokenPattern throughLast(Element... elements) {
+        return new TokenPattern(false, sequence(elements), null);
+    }
+
+    /**
+     * A pattern that matches through its last occurrence after one of
+     * first, ".*first.*...". However first matches, greedy ".*"s take the
+     * last occurrence on the line, so first only decides whether the line
+     * matches: it must be able to end at or before that occurrence.
+     */
+    static TokenPattern throughLastAfter(Element first, Element... elements) {
+        return new TokenPattern(false, sequence(elements), first);
+    }
+
+    /**
+     * @return the start and end of the match Matcher.find() would return,
+     *         or null if there is none.
+     */
+    int[] find(String text) {
+        if (anchored) {
+            int end = matchAt(text, 0);
+            return end < 0 ? null : new int[] {0, end};
+        }
+        // ".*" can't cross a line terminator, so find() ends up starting the
+        // match at the beginning of the first line that has an occurrence,
+        // and greedily takes it through the last occurrence on that line.
+        int lineStart = 0;
+        while (lineStart <= text.length()) {
+            int lineEnd = lineStart;
+            while (lineEnd < text.length() && !isLineTerminator(text.charAt(lineEnd)))
+                lineEnd++;
+            for (int pos = lineEnd; pos >= lineStart; pos--) {
+                int end = matchAt(text, pos);
+                if (end >= 0) {
+                    if (after == null || endsBy(text, lineStart, pos))
+                        return new int[] {lineStart, end};
+                    break;
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        return null;
+    }
+
+    /* Returns where the first match of body at pos ends, or -1. */
+    private int matchAt(String text, int pos) {
+        final int[] end = {-1};
+        body.match(text, pos, new Next() {
+            public boolean at(int matchEnd) {
+                end[0] = matchEnd;
+                return true;
+            }
+        });
+        return end[0];
+    }
+
+    /* True if after occurs between from and to, ending by to. */
+    private boolean endsBy(String text, int from, final int to) {
+        for (int pos = from; pos <= to; pos++) {
+            boolean found = after.match(text, pos, new Next() {
+                public boolean at(int end) {
+                    return end <= to;
+                }
+            });
+            if (found)
+                return true;
+        }
+        return false;
+    }
+
+    /* The characters "." doesn't match by default. */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028'
+                || c == '\u2029';
+    }
+
+    /** The elements one after the other. */
+    static Element sequence(final Element... elements) {
+        if (elements.length == 1)
+            return elements[0];
+        return new Element() {
+            boolean match(String text, int pos, Next next) {
+                return matchFrom(0, text, pos, next);
+            }
+
+            private boolean matchFrom(final int i, final String text, int pos,
+                    final Next next) {
+                if (i == elements.length)
+                    return next.at(pos);
+                return elements[i].match(text, pos, new Next() {
+                    public boolean at(int end) {
+                        return matchFrom(i + 1, text, end, next);
+                    }
+                });
+            }
+        };
+    }
+
+    /** The string s, as is. */
+    static Element literal(final String s) {
+        return new Element() {
+            boolean match(String text, int pos, Next next) {
+                return text.startsWith(s, pos) && next.at(pos + s.length());
+            }
+        };
+    }
+
+    /** Any one of chars, "[chars]". */
+    static Element oneOf(final String chars) {
+        return new Element() {
+            boolean match(String text, int pos, Next next) {
+                return pos < text.length() && chars.indexOf(text.charAt(pos)) >= 0
+                        && next.at(pos + 1);
+            }
+        };
+    }
+
+    /** Between min and max ascii digits, "[0-9]{min,max}". */
+    static Element digits(final int min, final int max) {
+        return new Element() {
+            boolean match(String text, int pos, Next next) {
+                int end = pos;
+                while (end < text.length() && end - pos < max
+                        && text.charAt(end) >= '0' && text.charAt(end) <= '9')
+                    end++;
+                for (; end - pos >= min; end--) {
+                    if (next.at(end))
+                        return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /** A run of chars, "[chars]+". */
+    static Element run(final String chars) {
+        return new Element() {
+            boolean match(String text, int pos, Next next) {
+                int end = pos;
+                while (end < text.length() && chars.indexOf(text.charAt(end)) >= 0)
+                    end++;
+                for (; end > pos; end--) {
+                    if (next.at(end))
+                        return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Any number of runs of chars, each followed by a space,
+     * "([chars]+ )*". chars may not hold a space, so every run ends where
+     * it can't go on; they are given back from the most runs.
+     */
+    static Element spaced(final String chars) {
+        return new Element() {
+            boolean match(String text, int pos, Next next) {
+                List<Integer> ends = new ArrayList<Integer>();
+                ends.add(pos);
+                int end = pos;
+                while (true) {
+                    int i = end;
+                    while (i < text.length() && chars.indexOf(text.charAt(i)) >= 0)
+                        i++;
+                    if (i == end || i == text.length() || text.charAt(i) != ' ')
+                        break;
+                    end = i + 1;
+                    ends.add(end);
+                }
+                for (int i = ends.size() - 1; i >= 0; i--) {
+                    if (next.at(ends.get(i)))
+                        return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * One or more words, each followed by a space: a character of first,
+     * then characters of rest, "([first][rest]+ )+". Neither may hold a
+     * space, so every word ends where its run of rest ends and the words
+     * are found in one pass; they are given back from the longest run.
+     */
+    static Element words(final String first, final String rest) {
+        return new Element() {
+            boolean match(String text, int pos, Next next) {
+                List<Integer> ends = new ArrayList<Integer>();
+                int end = pos;
+                while (end < text.length() && first.indexOf(text.charAt(end)) >= 0) {
+                    int i = end + 1;
+                    while (i < text.length() && rest.indexOf(text.charAt(i)) >= 0)
+                        i++;
+                    if (i == end + 1 || i == text.length() || text.charAt(i) != ' ')
+                        break;
+                    end = i + 1;
+                    ends.add(end);
+                }
+                for (int i = ends.size() - 1; i >= 0; i--) {
+                    if (next.at(ends.get(i)))
+                        return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /** The element or nothing, "(...)?". */
+    static Element optional(final Element element) {
+        return new Element() {
+            boolean match(String text, int pos, Next next) {
+                return element.match(text, pos, next) || next.at(pos);
+            }
+        };
+    }
+
+    /** The first of the alternatives that lets the rest match, "(a|b)". */
+    static Element either(final Element... alternatives) {
+        return new Element() {
+            boolean match(String text, int pos, Next next) {
+                for (Element alternative : alternatives) {
+                    if (alternative.match(text, pos, next))
+                        return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /** One of the words of tokens, in the alternation's order. */
+    static Element token(final TokenTrie tokens) {
+        return new Element() {
+            boolean match(String text, int pos, Next next) {
+                for (int end : tokens.matchesAt(text, pos)) {
+                    if (next.at(end))
+                        return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /** ArticleTextCleaner's DASH, "(- -|--|-+|―+|—+|–+|‒+|‑+|‐+|•+|\|)". */
+    static Element dash() {
+        return DASH;
+    }
+
+    private static final String DASH_RUN_CHARS = "-―—–‒‑‐•";
+
+    private static final Element DASH = new Element() {
+        boolean match(String text, int pos, Next next) {
+            if (pos >= text.length())
+                return false;
+            if (text.startsWith("- -", pos) && next.at(pos + 3))
+                return true;
+            if (text.startsWith("--", pos) && next.at(pos + 2))
+                return true;
+            char c = text.charAt(pos);
+            if (c == '|')
+                return next.at(pos + 1);
+            if (DASH_RUN_CHARS.indexOf(c) < 0)
+                return false;
+            int end = pos;
+            while (end < text.length() && text.charAt(end) == c)
+                end++;
+            for (; end > pos; end--) {
+                if (next.at(end))
+                    return true;
+            }
+            return false;
+        }
+    };
+}
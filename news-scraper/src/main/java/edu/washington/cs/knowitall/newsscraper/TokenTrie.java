@@ -0,0 +1,78 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recognizes the words of a regex alternation such as ArticleTextCleaner's
+ * MONTH, DAY and TIME_ZONE, "(JANUARY|FEBRUARY|...)", in one walk down a
+ * trie instead of trying every alternative in turn.
+ *
+ * A regex alternation prefers its alternatives in the order they are
+ * written, not the longest one, so matches are reported in that order:
+ * "Sep" comes after "September" in MONTH, and a text starting with
+ * "September" matches both, "September" first.
+ */
+final class TokenTrie {
+
+    private static final class Node {
+        final Node[] next = new Node[128];
+        // position of the first alternative that ends here, or -1
+        int order = -1;
+    }
+
+    private final Node root = new Node();
+
+    /**
+     * @param alternation a regex group of plain alternatives, e.g.
+     *                    "(Jan|Feb)"; the words may only hold ascii
+     *                    letters and digits.
+     */
+    TokenTrie(String alternation) {
+        if (!alternation.startsWith("(") || !alternation.endsWith(")"))
+            throw new IllegalArgumentException("Not a group: " + alternation);
+        String[] words = alternation.substring(1, alternation.length() - 1)
+                .split("\\|");
+        for (int i = 0; i < words.length; i++)
+            add(words[i], i);
+    }
+
+    private void add(String word, int order) {
+        Node node = root;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c >= 128 || !Character.isLetterOrDigit(c))
+                throw new IllegalArgumentException("Not a plain word: " + word);
+            if (node.next[c] == null)
+                node.next[c] = new Node();
+            node = node.next[c];
+        }
+        // a repeated word keeps its first position
+        if (node.order == -1)
+            node.order = order;
+    }
+
+    /**
+     * @return the end positions of the words that occur in text at pos, in
+     *         the order the alternation would try them; empty if none.
+     */
+    List<Integer> matchesAt(String text, int pos) {
+        List<Integer> ends = new ArrayList<Integer>(2);
+        List<Integer> orders = new ArrayList<Integer>(2);
+        Node node = root;
+        for (int i = pos; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 128 || (node = node.next[c]) == null)
+                break;
+            if (node.order != -1) {
+                // insertion sort by order; there are at most a few matches
+                int at = orders.size();
+                while (at > 0 && orders.get(at - 1) > node.order)
+                    at--;
+                orders.add(at, node.order);
+                ends.add(at, i + 1);
+            }
+        }
+        return ends;
+    }
+}
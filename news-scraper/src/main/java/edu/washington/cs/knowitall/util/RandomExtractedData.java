@@ -7,10 +7,14 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.util.Random;
 
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import edu.washington.cs.knowitall.newsscraper.NewsRecordReader;
+
 public class RandomExtractedData {
 
     private static JSONObject result;
@@ -41,26 +45,31 @@ public class RandomExtractedData {
         String[] srcFiles = srcFolder.list();
         for(int i = 0; i < srcFiles.length; i++){
             File srcFile = new File(srcFolder, srcFiles[i]);
-            String fileContent = FileLoader.loadFile(srcFile.toString());
             try {
-                JSONObject jFileContent = new JSONObject(fileContent);
-                JSONArray ja = jFileContent.names();
-                for(int j = 0; j < ja.length(); j++){
+                NewsRecordReader in = new NewsRecordReader(srcFile);
+                try {
+                    JsonObject jNews;
+                    while((jNews = in.next()) != null){
 //                    if(new Random().nextDouble() < 0.01){
-                        String key = ja.getString(j);
-                        JSONArray jExtractions = jFileContent.getJSONObject(key).getJSONArray("extractions");
+                        String key = String.valueOf(in.getId());
+                        JsonArray jExtractions = jNews.getAsJsonArray("extractions");
                         boolean keep = false;
-                        for(int k = 0; k < jExtractions.length(); k++){
-                            JSONObject jExtraction = jExtractions.getJSONObject(k);
-                            if(jExtraction.getDouble("confidence") > 0.9){
+                        for(int k = 0; k < jExtractions.size(); k++){
+                            JsonObject jExtraction = jExtractions.get(k).getAsJsonObject();
+                            if(jExtraction.get("confidence").getAsDouble() > 0.9){
                                 keep = true;
                                 break;
                             }
                         }
                         if(keep && new Random().nextDouble() < 0.001)
-                            result.put(key, jFileContent.getJSONObject(key));
+                            result.put(key, new JSONObject(jNews.toString()));
 //                    }
+                    }
+                } finally {
+                    in.close();
                 }
+            } catch (IOException e) {
+                e.printStackTrace();
             } catch (JSONException e) {
                 e.printStackTrace();
             }
@@ -18,11 +18,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
 
 import edu.washington.cs.knowitall.newsscraper.Config;
+import edu.washington.cs.knowitall.newsscraper.NewsRecordReader;
 import edu.washington.cs.knowitall.newsscraper.NewsScraperMain;
 
 
@@ -97,33 +97,36 @@ public class StatisticsGenerator {
 
 
     private static void processFile(String fileDir) {
-        String content = FileLoader.loadFile(fileDir);
         DateFormat formatter = new SimpleDateFormat("yyyy-MM-dd");
         Date date = null;
         try {
-            JSONObject jContent = new JSONObject(content);
-            JSONArray ja = jContent.names();
-            for(int i = 0; i < ja.length(); i++){
-                JSONObject news = (JSONObject) jContent.get(ja.getString(i));
-                if (!duplicateChecker.contains(news.getString("title").trim())){
-                    duplicateChecker.add(news.getString("title").trim());
-
-                    date = formatter.parse(news.getString("date"));
-                    Calendar cal = new GregorianCalendar();
-                    cal.setTime(date);
-                    int weekday = cal.get(Calendar.DAY_OF_WEEK);
-
-                    DayOfWeekData thatDay = dayOfWeekMap.get(dayOfWeek[weekday - 1]);
-                    thatDay.totalCount ++;
-
-                    JSONArray extractions = news.getJSONArray("extractions");
-                    thatDay.extractionCount += extractions.length();
-
-                    String category = news.getString("category");
-                    thatDay.categoryCount.put(category, thatDay.categoryCount.get(category) + 1);
+            NewsRecordReader in = new NewsRecordReader(new File(fileDir));
+            try {
+                JsonObject news;
+                while ((news = in.next()) != null) {
+                    String title = news.get("title").getAsString().trim();
+                    if (!duplicateChecker.contains(title)){
+                        duplicateChecker.add(title);
+
+                        date = formatter.parse(news.get("date").getAsString());
+                        Calendar cal = new GregorianCalendar();
+                        cal.setTime(date);
+                        int weekday = cal.get(Calendar.DAY_OF_WEEK);
+
+                        DayOfWeekData thatDay = dayOfWeekMap.get(dayOfWeek[weekday - 1]);
+                        thatDay.totalCount ++;
+
+                        JsonArray extractions = news.getAsJsonArray("extractions");
+                        thatDay.extractionCount += extractions.size();
+
+                        String category = news.get("category").getAsString();
+                        thatDay.categoryCount.put(category, thatDay.categoryCount.get(category) + 1);
+                    }
                 }
+            } finally {
+                in.close();
             }
-        } catch (JSONException e) {
+        } catch (IOException e) {
             e.printStackTrace();
         } catch (ParseException e) {
             e.printStackTrace();
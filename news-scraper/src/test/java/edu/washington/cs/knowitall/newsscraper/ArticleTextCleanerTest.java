@@ -0,0 +1,136 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ArticleTextCleanerTest {
+
+    // publisher \t description \t cleaned description, as cleaned before
+    // fixGeneralContent was turned into precompiled rules
+    private static final String CASES = "GeneralContentCases.tsv";
+
+    public static ArticleTextCleaner cleaner;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        cleaner = new ArticleTextCleaner();
+    }
+
+    @Test
+    public void sameOutputAsRecursiveReplaceFirst() throws Exception {
+        BufferedReader in = new BufferedReader(new InputStreamReader(
+                getClass().getResourceAsStream(CASES), "UTF-8"));
+        int count = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            String[] fields = line.split("\t", -1);
+            assertEquals(fields[1], fields[2],
+                    cleaner.clean(fields[1], fields[0]));
+            count++;
+        }
+        in.close();
+        assertTrue(count > 0);
+    }
+
+    @Test
+    public void reloadsPublisherRules() throws Exception {
+        File rules = File.createTempFile("publishers", ".csv");
+        rules.deleteOnExit();
+        writeRules(rules, "Daily Planet\t.*DAILY PLANET( )\n");
+        ArticleTextCleaner fileCleaner = new ArticleTextCleaner(rules.getPath());
+        assertEquals(1, fileCleaner.getPublisherCompileCount());
+
+        String text = "By LOIS LANE DAILY PLANET Superman was seen again. "
+                + "STAFF NOTE Witnesses saw him fly over Metropolis.";
+        assertEquals("Superman was seen again. STAFF NOTE Witnesses saw him "
+                + "fly over Metropolis.", fileCleaner.clean(text, "Daily Planet"));
+        // compiled once, not once per article
+        assertEquals(1, fileCleaner.getPublisherCompileCount());
+
+        writeRules(rules, "Daily Planet\t.*STAFF NOTE( )\n");
+        assertTrue(fileCleaner.reloadPublishers());
+        assertEquals("Witnesses saw him fly over Metropolis.",
+                fileCleaner.clean(text, "Daily Planet"));
+
+        // a bad regex keeps the rules that were loaded
+        writeRules(rules, "Daily Planet\t.*(STAFF\n");
+        assertFalse(fileCleaner.reloadPublishers());
+        assertEquals("Witnesses saw him fly over Metropolis.",
+                fileCleaner.clean(text, "Daily Planet"));
+    }
+
+    // pieces of dates, times and datelines, glued together at random
+    private static final String[] FRAGMENTS = {
+        "1", "12", "3", "2012", "20", "/", ":", " ", " ", " ", ",", ".", "'",
+        "-", "- -", "--", "—", "|", "pm", "AM", "th", "TH", "Sep", "SEP",
+        "September", "Sept", "MAY", "Ju", "Mon", "MONDAY", "Friday", "Fri",
+        "ET", "EST", "ChST", "ACDT", "Posted ", "posted ", "on ", "On ",
+        "LOS", "ANGELES", "D.C.", "x", "the", "\n", "(", ")", "(AP)", "A",
+        ", ", "Texas", "Ill.", "Ab"
+    };
+
+    @Test
+    public void tokenPatternsMatchTheirRegexes() {
+        Random random = new Random(13);
+        int checked = 0;
+        for (CleanupRule rule : cleaner.getGeneralRules()) {
+            if (!rule.hasTokenPattern())
+                continue;
+            for (int i = 0; i < 20000; i++) {
+                StringBuilder text = new StringBuilder();
+                int pieces = 1 + random.nextInt(16);
+                for (int j = 0; j < pieces; j++)
+                    text.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+                String s = text.toString();
+                assertEquals(rule + " on " + s, rule.applyRegex(s), rule.apply(s));
+            }
+            checked++;
+        }
+        assertTrue(checked > 0);
+    }
+
+    // each took seconds with the month, day and time zone regexes, and
+    // the last three with the source and city regexes
+    @Test(timeout = 5000)
+    public void adversarialTextsRunInLinearTime() {
+        String[] texts = {
+            "The vote is 12 - " + repeat("SEPTEMBER OCTOBER NOVEMBER DECEMBER ", 300) + "done.",
+            repeat("MONDAY TUESDAY WEDNES ", 300) + "12 - x",
+            repeat("Mon 12th Ju ", 300) + " - x",
+            repeat("12 Sept 3 ", 300) + "- the end.",
+            repeat("ACDT ACSX ", 300) + "- 9 end.",
+            repeat("Sep 1x ", 300) + "- ok.",
+            repeat("12:30 pm ", 300) + "9/14/12 x",
+            repeat("(A ", 2000) + ") x - y",
+            repeat("ABC ", 3000) + "Texas, x - y",
+            repeat("AB, Cd ", 2000) + "x - y",
+        };
+        for (String text : texts)
+            cleaner.clean(text, "");
+        assertEquals("The end.", cleaner.clean(repeat("12 Sept 3 ", 300)
+                + "12 Sep 2012 - The end.", ""));
+    }
+
+    private static String repeat(String s, int times) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < times; i++)
+            sb.append(s);
+        return sb.toString();
+    }
+
+    private static void writeRules(File file, String rules) throws Exception {
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        out.write(rules);
+        out.close();
+    }
+}
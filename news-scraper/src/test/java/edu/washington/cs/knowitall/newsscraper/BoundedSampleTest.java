@@ -0,0 +1,79 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BoundedSampleTest {
+
+    private static final Comparator<double[]> BY_FIRST = new Comparator<double[]>() {
+        public int compare(double[] a, double[] b) {
+            return Double.compare(a[0], b[0]);
+        }
+    };
+
+    @Test
+    public void topKeepsTheGreatestInOrder() {
+        List<Integer> numbers = new ArrayList<Integer>();
+        for (int i = 0; i < 1000; i++)
+            numbers.add(i);
+        Collections.shuffle(numbers, new Random(18));
+
+        BoundedSample<Integer> top = BoundedSample.top(5,
+                new Comparator<Integer>() {
+                    public int compare(Integer a, Integer b) {
+                        return a.compareTo(b);
+                    }
+                });
+        for (int number : numbers)
+            top.offer(number);
+        assertEquals(Arrays.asList(999, 998, 997, 996, 995), top.toList());
+        assertEquals(1000, top.getOffered());
+    }
+
+    @Test
+    public void topKeepsTheFirstOfEqualItems() {
+        BoundedSample<double[]> top = BoundedSample.top(2, BY_FIRST);
+        top.offer(new double[] {0.5, 1});
+        top.offer(new double[] {0.9, 2});
+        top.offer(new double[] {0.5, 3});
+        top.offer(new double[] {0.9, 4});
+        top.offer(new double[] {0.9, 5});
+
+        List<double[]> kept = top.toList();
+        assertEquals(2, kept.size());
+        assertEquals(2, kept.get(0)[1], 0);
+        assertEquals(4, kept.get(1)[1], 0);
+    }
+
+    @Test
+    public void randomPicksEveryItemAsOften() {
+        Random random = new Random(18);
+        int[] picked = new int[100];
+        int runs = 10000;
+        for (int run = 0; run < runs; run++) {
+            BoundedSample<Integer> sample = BoundedSample.random(10, random);
+            for (int i = 0; i < picked.length; i++)
+                sample.offer(i);
+            List<Integer> kept = sample.toList();
+            assertEquals(10, kept.size());
+            for (int i : kept)
+                picked[i]++;
+        }
+        // each item should be kept in a tenth of the runs
+        for (int count : picked)
+            assertEquals(runs / 10, count, runs / 10 * 0.15);
+
+        BoundedSample<Integer> few = BoundedSample.random(10, random);
+        few.offer(1);
+        few.offer(2);
+        assertEquals(2, few.toList().size());
+    }
+}
@@ -0,0 +1,48 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.junit.Test;
+
+public class DedupStoreTest {
+
+    @Test
+    public void keepsTheFirstDayAcrossRunsAndGrowth() throws Exception {
+        File file = File.createTempFile("dedup", ".table");
+        file.delete();
+        file.deleteOnExit();
+
+        DedupStore store = new DedupStore(file);
+        long story = DedupStore.hash("Obama visits Ohio");
+        assertEquals(0, store.firstSeen(story));
+        store.record(story, DedupStore.day("2012-06-02"));
+        store.record(story, DedupStore.day("2012-06-03"));
+        assertEquals(20120602, store.firstSeen(story));
+        store.record(story, DedupStore.day("2012-06-01"));
+        assertEquals(20120601, store.firstSeen(story));
+
+        // past the initial table, which has to grow a few times
+        for (int i = 0; i < 200000; i++)
+            store.record(DedupStore.hash("story " + i), 20120601 + i % 7);
+        store.close();
+
+        store = new DedupStore(file);
+        assertEquals(200001, store.size());
+        assertEquals(20120601, store.firstSeen(story));
+        for (int i = 0; i < 200000; i += 997)
+            assertEquals(20120601 + i % 7,
+                    store.firstSeen(DedupStore.hash("story " + i)));
+        assertEquals(0, store.firstSeen(DedupStore.hash("story -1")));
+        store.close();
+    }
+
+    @Test
+    public void hashesIgnoreCaseAndSpacing() {
+        assertEquals(DedupStore.hash("Obama visits Ohio"),
+                DedupStore.hash("  obama\tvisits \n OHIO "));
+        assertFalse(DedupStore.hash("Obama visits Ohio")
+                == DedupStore.hash("Obamavisits Ohio"));
+    }
+}
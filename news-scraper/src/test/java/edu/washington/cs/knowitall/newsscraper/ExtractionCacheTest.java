@@ -0,0 +1,89 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.washington.cs.knowitall.commonlib.Range;
+import edu.washington.cs.knowitall.nlp.ChunkedSentence;
+
+public class ExtractionCacheTest {
+
+    private static final String SENTENCE = "Obama visits Ohio.";
+
+    private static ChunkedSentence chunked() throws Exception {
+        return new ChunkedSentence(
+                new Range[] {new Range(0, 5), new Range(6, 6),
+                        new Range(13, 4), new Range(17, 1)},
+                new String[] {"Obama", "visits", "Ohio", "."},
+                new String[] {"NNP", "VBZ", "NNP", "."},
+                new String[] {"B-NP", "B-VP", "B-NP", "O"});
+    }
+
+    private static List<String[]> extractions() {
+        List<String[]> extractions = new ArrayList<String[]>();
+        extractions.add(new String[] {"Obama", "[0, 1)", "visits", "[1, 2)",
+                "Ohio", "[2, 3)", "0.9"});
+        return extractions;
+    }
+
+    @Test
+    public void keepsSentencesAcrossRuns() throws Exception {
+        File file = File.createTempFile("extraction", ".cache");
+        file.delete();
+        file.deleteOnExit();
+
+        ExtractionCache cache = new ExtractionCache(file, 10);
+        assertNull(cache.getChunked(SENTENCE));
+        assertNull(cache.getExtractions(SENTENCE));
+        cache.put(SENTENCE, chunked(), extractions());
+        cache.save();
+
+        cache = new ExtractionCache(file, 10);
+        assertEquals(1, cache.size());
+        ChunkedSentence cached = cache.getChunked(SENTENCE);
+        assertEquals(chunked().getTokensAsString(), cached.getTokensAsString());
+        assertEquals(chunked().getPosTagsAsString(),
+                cached.getPosTagsAsString());
+        assertEquals(chunked().getChunkTagsAsString(),
+                cached.getChunkTagsAsString());
+        assertEquals(chunked().getOffsetsAsString(),
+                cached.getOffsetsAsString());
+        assertTrue(Arrays.equals(extractions().get(0),
+                cache.getExtractions(SENTENCE).get(0)));
+
+        // the exact text is the key
+        assertNull(cache.getChunked("obama visits Ohio."));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void dropsTheLeastRecentlyUsed() throws Exception {
+        File file = File.createTempFile("extraction", ".cache");
+        file.delete();
+        file.deleteOnExit();
+
+        ExtractionCache cache = new ExtractionCache(file, 2);
+        cache.put("a", chunked(), extractions());
+        cache.put("b", chunked(), extractions());
+        assertNotNull(cache.getChunked("a"));
+        cache.put("c", chunked(), extractions());
+        assertEquals(2, cache.size());
+        assertNull(cache.getExtractions("b"));
+        cache.save();
+
+        // the order of use is kept too: b was dropped, then c is the eldest
+        cache = new ExtractionCache(file, 2);
+        assertNotNull(cache.getExtractions("a"));
+        cache.put("d", chunked(), extractions());
+        assertNull(cache.getExtractions("c"));
+        assertNotNull(cache.getExtractions("a"));
+        assertNotNull(cache.getExtractions("d"));
+    }
+}
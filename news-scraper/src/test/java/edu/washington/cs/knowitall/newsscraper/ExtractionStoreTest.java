@@ -0,0 +1,76 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ExtractionStoreTest {
+
+    @Test
+    public void writesEachDayByCategory() throws Exception {
+        File dir = File.createTempFile("columns", "");
+        dir.delete();
+        ExtractionStore store = new ExtractionStore(dir);
+
+        store.write("2012-06-01", write(
+                article(1, "Business", extraction("Apple", "sells", "phones", "0.9")
+                        + "," + extraction("Apple", "buys", "a firm", "0.25"))
+                + article(2, "US", extraction("Obama", "visits", "Ohio", "0.5"))
+                + article(3, "Business", extraction("Apple", "sells", "phones", "0.7"))));
+        store.write("2012-06-02", write(
+                article(4, "US", extraction("Rain", "falls on", "Ohio", "0.1"))));
+
+        List<ExtractionStore.Partition> partitions =
+                store.getPartitions("BUSINESS", null, null);
+        assertEquals(1, partitions.size());
+        ExtractionStore.Partition business = partitions.get(0);
+        assertEquals("2012-06-01", business.getDate());
+        assertEquals("Business", business.getCategory());
+        assertEquals(3, business.size());
+        assertArrayEquals(new double[] {0.9, 0.25, 0.7},
+                business.readConfidence(), 0);
+        assertArrayEquals(new String[] {"sells", "buys", "sells"},
+                business.readStrings(ExtractionStore.RELATION));
+        assertArrayEquals(new int[] {0, 0, 0},
+                business.readCodes(ExtractionStore.ARG1));
+        assertArrayEquals(new String[] {"phones", "a firm"},
+                business.readDictionary(ExtractionStore.ARG2));
+
+        assertEquals(3, store.getPartitions(null, null, null).size());
+        partitions = store.getPartitions("us", "2012-06-02", "2012-06-30");
+        assertEquals(1, partitions.size());
+        assertEquals("Rain", partitions.get(0).readStrings(ExtractionStore.ARG1)[0]);
+
+        // writing a day again replaces all of it
+        store.write("2012-06-01", write(
+                article(1, "World", extraction("Paris", "is in", "France", "0.8"))));
+        assertEquals(2, store.getPartitions(null, null, null).size());
+        assertEquals(1, store.getPartitions("world", null, null).get(0).size());
+    }
+
+    private static String article(long id, String category, String extractions) {
+        return "{\"id\":" + id + ", \"title\":\"t" + id + "\", \"category\":\""
+                + category + "\", \"extractions\":[" + extractions + "]}\n";
+    }
+
+    private static String extraction(String arg1, String relation,
+            String arg2, String confidence) {
+        return "{\"sent\":\"s\", \"arg1\":\"" + arg1 + "\", \"relation\":\""
+                + relation + "\", \"arg2\":\"" + arg2
+                + "\", \"posTags\":[\"NN\"], \"confidence\":\"" + confidence
+                + "\"}";
+    }
+
+    private static File write(String content) throws Exception {
+        File file = File.createTempFile("extracted", ".data");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(content.getBytes("UTF-8"));
+        out.close();
+        return file;
+    }
+}
@@ -0,0 +1,44 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class FeedScheduleTest {
+
+    @Test
+    public void fetchesEachFeedAtItsInterval() {
+        FeedSchedule schedule = new FeedSchedule();
+        schedule.add("US_us", 15);
+        schedule.add("WORLD_world", 60);
+
+        assertEquals(Arrays.asList("US_us", "WORLD_world"),
+                schedule.takeDue(1000));
+        assertEquals(1015, schedule.nextDue());
+        assertEquals(Collections.emptyList(), schedule.takeDue(1014));
+
+        assertEquals(Arrays.asList("US_us"), schedule.takeDue(1015));
+        assertEquals(Arrays.asList("US_us"), schedule.takeDue(1050));
+        assertEquals(1060, schedule.nextDue());
+
+        // a late take counts from when it was taken
+        assertEquals(Arrays.asList("US_us", "WORLD_world"),
+                schedule.takeDue(1200));
+        assertEquals(1215, schedule.nextDue());
+    }
+
+    @Test
+    public void hasNothingDueWithoutFeeds() {
+        FeedSchedule schedule = new FeedSchedule();
+        assertEquals(Long.MAX_VALUE, schedule.nextDue());
+        assertTrue(schedule.takeDue(Long.MAX_VALUE).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void needsAnInterval() {
+        new FeedSchedule().add("US_us", 0);
+    }
+}
@@ -0,0 +1,45 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class FetchCacheTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    @Test
+    public void prunesStaleEntriesOfUnconfiguredUrls() throws Exception {
+        File dir = File.createTempFile("fetchcache", "");
+        dir.delete();
+        FetchCache cache = new FetchCache(dir.getPath());
+
+        String feed = "http://news.example.com/rss/us";
+        String removedFeed = "http://news.example.com/rss/removed";
+        String article = "http://news.example.com/article/1";
+        String oldArticle = "http://news.example.com/article/2";
+        for (String url : Arrays.asList(feed, removedFeed, article, oldArticle))
+            cache.put(url, "\"etag\"", null, "<rss/>");
+        File tmp = new File(dir, "broken.json.tmp");
+        assertTrue(tmp.createNewFile());
+
+        // all were stored three days ago; article was read since
+        long old = System.currentTimeMillis() - 3 * DAY;
+        for (File file : dir.listFiles())
+            assertTrue(file.setLastModified(old));
+        assertNotNull(cache.get(article));
+
+        // feed is configured, so it is kept however old
+        assertEquals(3, cache.prune(Arrays.asList(feed), 2 * DAY));
+        assertNotNull(cache.get(feed));
+        assertNotNull(cache.get(article));
+        assertNull(cache.get(removedFeed));
+        assertNull(cache.get(oldArticle));
+        assertFalse(tmp.exists());
+        assertEquals(2, dir.listFiles().length);
+        assertEquals(0, cache.prune(Arrays.asList(feed), 2 * DAY));
+    }
+}
@@ -0,0 +1,38 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class FormatFilterTest {
+
+    @Test
+    public void keepsTheWindowCategoryAndConfidence() {
+        FormatFilter filter = new FormatFilter("BUSINESS", "2012-05-01",
+                "2012-05-04", 0.5);
+        assertTrue(filter.acceptsDate("2012-05-01"));
+        assertTrue(filter.acceptsDate("2012-05-04"));
+        assertFalse(filter.acceptsDate("2012-04-30"));
+        assertFalse(filter.acceptsDate("2012-05-05"));
+        assertFalse(filter.acceptsDate(null));
+        assertTrue(filter.acceptsCategory("Business"));
+        assertFalse(filter.acceptsCategory("US"));
+        assertFalse(filter.acceptsCategory(null));
+        assertTrue(filter.acceptsConfidence(0.51));
+        assertFalse(filter.acceptsConfidence(0.5));
+    }
+
+    @Test
+    public void keepsEverythingByDefault() {
+        FormatFilter filter = new FormatFilter(null, null, null, -1);
+        assertTrue(filter.acceptsDate("1999-01-01"));
+        assertTrue(filter.acceptsDate(null));
+        assertTrue(filter.acceptsCategory("US"));
+        assertTrue(filter.acceptsConfidence(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void needsBothEndsOfTheWindow() {
+        new FormatFilter(null, "2012-05-01", null, -1);
+    }
+}
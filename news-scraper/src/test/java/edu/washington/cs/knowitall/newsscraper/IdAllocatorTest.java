@@ -0,0 +1,65 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class IdAllocatorTest {
+
+    @Test
+    public void carriesOnFromAnOldIdCountFile() throws Exception {
+        File counter = File.createTempFile("idCount", "");
+        counter.deleteOnExit();
+        // written by the scraper before IdAllocator: "previous next"
+        FileOutputStream out = new FileOutputStream(counter);
+        out.write("120 245".getBytes("UTF-8"));
+        out.close();
+
+        IdAllocator ids = new IdAllocator(counter);
+        assertEquals(246, ids.reserve(10));
+        assertEquals(256, ids.reserve(1));
+        assertEquals(257, new IdAllocator(counter).reserve(5));
+    }
+
+    @Test
+    public void neverHandsOutAnIdTwice() throws Exception {
+        File counter = File.createTempFile("idCount", "");
+        counter.deleteOnExit();
+        final List<Long> firsts = Collections.synchronizedList(new ArrayList<Long>());
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 8; i++) {
+            // one allocator per thread, like scrapers sharing the file
+            final IdAllocator ids = new IdAllocator(counter);
+            threads.add(new Thread() {
+                public void run() {
+                    try {
+                        for (int j = 0; j < 50; j++)
+                            firsts.add(ids.reserve(3));
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads)
+            thread.start();
+        for (Thread thread : threads)
+            thread.join();
+
+        Set<Long> handedOut = new HashSet<Long>();
+        for (long first : firsts) {
+            for (long id = first; id < first + 3; id++)
+                assertTrue(handedOut.add(id));
+        }
+        assertEquals(8 * 50 * 3, handedOut.size());
+        assertEquals(1, (long) Collections.min(handedOut));
+    }
+}
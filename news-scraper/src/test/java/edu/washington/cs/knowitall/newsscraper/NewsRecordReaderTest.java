@@ -0,0 +1,108 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+
+public class NewsRecordReaderTest {
+
+    @Test
+    public void readsEveryLayout() throws Exception {
+        NewsData first = new NewsData("US", "us", "First \"one\"", "2012-06-01");
+        first.content = "Line one.\nLine two. ";
+        NewsData second = new NewsData("TECH", "apple", "Second", "2012-06-01");
+
+        StringBuilder keyed = new StringBuilder("{\"12\": ");
+        first.writeJson(keyed);
+        keyed.append(", \"13\": ");
+        second.writeJson(keyed);
+        keyed.append("}");
+
+        StringBuilder lines = new StringBuilder();
+        first.writeJsonLine(lines, 12);
+        second.writeJsonLine(lines, 13);
+        assertEquals(2, lines.toString().split("\n").length);
+
+        for (String content : new String[] {keyed.toString(), lines.toString()}) {
+            NewsRecordReader in = new NewsRecordReader(write(content));
+            JsonObject article = in.next();
+            assertEquals(Long.valueOf(12), in.getId());
+            assertEquals(first.title, article.get("title").getAsString());
+            assertEquals(first.content, article.get("content").getAsString());
+            article = in.next();
+            assertEquals(Long.valueOf(13), in.getId());
+            assertEquals("apple", article.get("subCategory").getAsString());
+            assertNull(in.next());
+            in.close();
+        }
+
+        NewsRecordReader in = new NewsRecordReader(write(
+                "[\t\n{\"title\":\"a\"}\n, \t\n{\"title\":\"b\"}\n]"));
+        assertEquals("a", in.next().get("title").getAsString());
+        assertNull(in.getId());
+        assertEquals("b", in.next().get("title").getAsString());
+        assertNull(in.next());
+        in.close();
+
+        assertTrue(NewsRecordReader.isNdjson(write(lines.toString())));
+        assertTrue(NewsRecordReader.isNdjson(write("")));
+        assertFalse(NewsRecordReader.isNdjson(write(keyed.toString())));
+        assertFalse(NewsRecordReader.isNdjson(write("{}")));
+    }
+
+    @Test
+    public void skipsALineCutOffByACrash() throws Exception {
+        StringBuilder lines = new StringBuilder();
+        new NewsData("US", "us", "Whole", "2012-06-01").writeJsonLine(lines, 1);
+        lines.append("{\"id\":2, \"title\":\"Cut of");
+
+        NewsRecordReader in = new NewsRecordReader(write(lines.toString()));
+        assertEquals("Whole", in.next().get("title").getAsString());
+        assertNull(in.next());
+        in.close();
+    }
+
+    @Test
+    public void handsArticlesToAHandler() throws Exception {
+        StringBuilder lines = new StringBuilder();
+        new NewsData("US", "us", "First", "2012-06-01").writeJsonLine(lines, 1);
+        lines.append("{\"id\":2, \"title\":\"Cut of\n");
+        new NewsData("US", "us", "Third", "2012-06-01").writeJsonLine(lines, 3);
+
+        final StringBuilder read = new StringBuilder();
+        NewsRecordReader.ArticleHandler titles = new NewsRecordReader.ArticleHandler() {
+            public void read(Long id, JsonReader article) throws IOException {
+                article.beginObject();
+                while (article.hasNext()) {
+                    if (article.nextName().equals("title"))
+                        read.append(id + " " + article.nextString() + ";");
+                    else
+                        article.skipValue();
+                }
+                article.endObject();
+            }
+        };
+
+        NewsRecordReader in = new NewsRecordReader(write(lines.toString()));
+        while (in.next(titles))
+            ;
+        in.close();
+        assertEquals("1 First;3 Third;", read.toString());
+    }
+
+    private static File write(String content) throws Exception {
+        File file = File.createTempFile("records", ".data");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(content.getBytes("UTF-8"));
+        out.close();
+        return file;
+    }
+}
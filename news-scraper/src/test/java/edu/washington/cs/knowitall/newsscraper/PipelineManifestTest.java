@@ -0,0 +1,61 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class PipelineManifestTest {
+
+    @Test
+    public void keepsWhatWasRecordedAcrossLoads() throws Exception {
+        File dir = makeTempDir();
+        PipelineManifest manifest = new PipelineManifest(dir);
+        manifest.add(PipelineManifest.PROCESSED, "a.html", "10:1");
+        manifest.add(PipelineManifest.EXTRACTED, "rss.data", "100 1,2");
+        manifest.add(PipelineManifest.EXTRACTED, "rss.data", "200 3,4");
+        manifest.add(PipelineManifest.PROCESSED, "a.html", "20:2");
+
+        manifest = new PipelineManifest(dir);
+        assertEquals("20:2", manifest.get(PipelineManifest.PROCESSED, "a.html"));
+        assertEquals(Arrays.asList("100 1,2", "200 3,4"),
+                manifest.getAll(PipelineManifest.EXTRACTED, "rss.data"));
+
+        manifest.reset(PipelineManifest.EXTRACTED, "rss.data");
+        manifest = new PipelineManifest(dir);
+        assertTrue(manifest.getAll(PipelineManifest.EXTRACTED, "rss.data").isEmpty());
+        assertEquals("20:2", manifest.get(PipelineManifest.PROCESSED, "a.html"));
+    }
+
+    @Test
+    public void dropsALineCutOffByACrash() throws Exception {
+        File dir = makeTempDir();
+        PipelineManifest manifest = new PipelineManifest(dir);
+        manifest.add(PipelineManifest.EXTRACTED, "rss.data", "100 1,2");
+
+        // a run died while writing the next line
+        FileOutputStream out = new FileOutputStream(new File(dir,
+                PipelineManifest.FILE_NAME), true);
+        out.write("extracted\trss.data\t200 3".getBytes("UTF-8"));
+        out.close();
+
+        manifest = new PipelineManifest(dir);
+        assertEquals("100 1,2", manifest.get(PipelineManifest.EXTRACTED, "rss.data"));
+        manifest.add(PipelineManifest.EXTRACTED, "rss.data", "300 3,4,5");
+        manifest = new PipelineManifest(dir);
+        assertEquals(Arrays.asList("100 1,2", "300 3,4,5"),
+                manifest.getAll(PipelineManifest.EXTRACTED, "rss.data"));
+    }
+
+    private static File makeTempDir() throws Exception {
+        File dir = File.createTempFile("manifest", "");
+        dir.delete();
+        dir.mkdir();
+        new File(dir, PipelineManifest.FILE_NAME).deleteOnExit();
+        dir.deleteOnExit();
+        return dir;
+    }
+}
@@ -0,0 +1,109 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Calendar;
+
+import org.junit.Test;
+
+public class ReverbNewsExtractorTest {
+
+    private static final String DATA_FILE = "2012-06-01_rss.data";
+
+    @Test
+    public void writesNothingWhenTheModelsDontLoad() throws Exception {
+        checkNothingWritten(1);
+    }
+
+    @Test
+    public void writesNothingWhenAWorkerCantChunk() throws Exception {
+        checkNothingWritten(2);
+    }
+
+    @Test
+    public void skipsFilesThatArentRssData() throws Exception {
+        File root = makeTempDir();
+        File dataDir = new File(root, "2012-06-01/data");
+        dataDir.mkdirs();
+        // left by a run of outputDatabase that was killed
+        write(new File(dataDir, DATA_FILE + ".tmp"), "{\"1\": {\"title\":");
+        File target = new File(root, "extracted");
+
+        ReverbNewsExtractor extractor = new ReverbNewsExtractor(
+                Calendar.getInstance(), makeConfig(root)) {
+            @Override
+            Chunkers newChunkers() throws IOException {
+                throw new IOException("No models.");
+            }
+        };
+        extractor.extract(dataDir.getPath(), target.getPath());
+
+        String[] written = target.list();
+        assertTrue(written == null || written.length == 0);
+    }
+
+    private void checkNothingWritten(int workers) throws Exception {
+        File root = makeTempDir();
+        File dataDir = new File(root, "2012-06-01/data");
+        dataDir.mkdirs();
+        write(new File(dataDir, DATA_FILE), "{\"1\": {\"title\":\"Senate "
+                + "passes the budget\", \"date\":\"2012-06-01\", \"content\":"
+                + "\"The Senate passed the budget on Friday.\", "
+                + "\"category\":\"US\"}}");
+        File target = new File(root, "extracted");
+        Config config = makeConfig(root);
+
+        ReverbNewsExtractor extractor = new ReverbNewsExtractor(
+                Calendar.getInstance(), config) {
+            @Override
+            Chunkers newChunkers() throws IOException {
+                throw new IOException("No models.");
+            }
+        };
+        extractor.setWorkerCount(workers);
+        try {
+            extractor.extract(dataDir.getPath(), target.getPath());
+            fail("Extracted without a chunker.");
+        } catch (IllegalStateException e) {
+            // the failure reaches the caller
+        }
+
+        String[] written = target.list();
+        assertTrue(written == null || written.length == 0);
+        PipelineManifest manifest = new PipelineManifest(dataDir.getParentFile());
+        assertTrue(manifest.getAll(PipelineManifest.EXTRACTED, DATA_FILE).isEmpty());
+        assertNull(manifest.get(PipelineManifest.EXTRACTED_FILE, DATA_FILE));
+    }
+
+    private static Config makeConfig(File root) throws Exception {
+        File file = new File(root, "config.json");
+        write(file, "{\"root-dir\":\"" + root.getPath() + "/\", "
+                + "\"rss-url\":\"http://localhost/\", \"categories\":[\"US\"], "
+                + "\"extracted_data_suffix\":\"revnews\", "
+                + "\"extracted_data_dir\":\"" + root.getPath() + "/extracted\", "
+                + "\"formatted_extracted_data_dir\":\"formatted/\", "
+                + "\"extraction-cache-size\":0, \"tag\":\"yahoo\"}");
+        return new Config(file.toURI().toURL());
+    }
+
+    private static void write(File file, String text) throws IOException {
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            out.write(text);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static File makeTempDir() throws Exception {
+        File dir = File.createTempFile("extractor", "");
+        dir.delete();
+        dir.mkdir();
+        return dir;
+    }
+}
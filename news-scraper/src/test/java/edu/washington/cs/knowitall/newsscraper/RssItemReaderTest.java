@@ -0,0 +1,111 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.junit.Test;
+
+public class RssItemReaderTest {
+
+    private static final String ENCODE = "UTF-8";
+
+    @Test
+    public void skipsTagsThatStartLikeItem() throws Exception {
+        List<String> items = checkSameItems("<rss><channel><itemid>7</itemid>"
+                + "<item><title>First</title><itemid>8</itemid></item>"
+                + "<items>none</items><itemize/>"
+                + "<item id=\"2\"><title>Second</title></item>"
+                + "</channel></rss>");
+        assertEquals(2, items.size());
+    }
+
+    @Test
+    public void keepsCdataAndEntities() throws Exception {
+        List<String> items = checkSameItems("<rss><channel>"
+                + "<item><title><![CDATA[Tom & Jerry <b>return</b>]]></title>"
+                + "<description>&lt;p&gt;AT&amp;T &quot;hi&quot; &#8212; "
+                + "caf&eacute; &nbsp;&lt;/p&gt;</description></item>"
+                + "<item><title>Fish &amp; chips</title>"
+                + "<description><![CDATA[<p>a < b</p>]]></description></item>"
+                + "</channel></rss>");
+        assertEquals(2, items.size());
+
+        // raw files are written by Jsoup, which escapes an end tag in text
+        // but keeps comments as they are
+        String feed = "<rss><channel><item><description><![CDATA[<p>see "
+                + "</item></p>]]></description><!-- </item> --></item>"
+                + "<!-- <item><title>Old</title></item> --->"
+                + "<item><title>Next</title><!----></item></channel></rss>";
+        items = checkSameItems(Jsoup.parse(feed).toString());
+        assertEquals(2, items.size());
+    }
+
+    @Test
+    public void closesATruncatedLastItem() throws Exception {
+        List<String> items = checkSameItems("<rss><channel>"
+                + "<item><title>Whole</title></item>"
+                + "<item><title>Cut off</title><description>The file en");
+        assertEquals(2, items.size());
+
+        items = checkSameItems("<rss><channel><item><title>Whole</title>"
+                + "</item><ite");
+        assertEquals(1, items.size());
+    }
+
+    @Test
+    public void dropsLineBreaksLikeTheWholeFileParse() throws Exception {
+        List<String> items = checkSameItems("<rss>\r\n<channel>\r\n"
+                + "<item>\r\n<title>Two\r\nlines</title>\r\n</item>\r\n"
+                + "<item\r\n id=\"2\"><title>Split end</title></ite\r\nm>\r\n"
+                + "<item><title>Old\rMac\nand more</title></item>\r\n"
+                + "</channel>\r\n</rss>\r\n");
+        assertEquals(3, items.size());
+    }
+
+    /*
+     * Checks that RssItemReader returns the items of text the way the old
+     * processHtml found them, parsing the whole file read by lines, and
+     * returns them.
+     */
+    private static List<String> checkSameItems(String text) throws Exception {
+        File file = File.createTempFile("raw", ".html");
+        file.deleteOnExit();
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), ENCODE);
+        out.write(text);
+        out.close();
+
+        List<String> expected = wholeFileItems(file);
+        List<String> actual = new ArrayList<String>();
+        RssItemReader reader = new RssItemReader(file, ENCODE);
+        Element item;
+        while ((item = reader.nextItem()) != null)
+            actual.add(item.outerHtml());
+        reader.close();
+
+        assertEquals(expected, actual);
+        assertEquals(actual.size(), reader.getItemCount());
+        return actual;
+    }
+
+    /* RssScraper.getFileContent followed by Jsoup.parse. */
+    private static List<String> wholeFileItems(File file) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        Scanner sc = new Scanner(file, ENCODE);
+        while (sc.hasNextLine())
+            sb.append(sc.nextLine());
+        sc.close();
+        List<String> items = new ArrayList<String>();
+        for (Element item : Jsoup.parse(sb.toString()).getElementsByTag("item"))
+            items.add(item.outerHtml());
+        return items;
+    }
+}
@@ -0,0 +1,159 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RssScraperTest {
+
+    private static final String DATE = "2012-06-01";
+    private static final String[] FEEDS = { "US_us", "World_world",
+            "Business_business", "SciTech_tech", "Politics_politics",
+            "Sports_sports" };
+    private static final int ITEMS_PER_FEED = 40;
+
+    @Test
+    public void parallelProcessingWritesTheSameData() throws Exception {
+        File root = makeTempDir();
+        File rawDir = new File(root, "raw");
+        rawDir.mkdir();
+        writeRawFiles(rawDir);
+
+        byte[] sequential = process(root, rawDir, 1);
+        byte[] parallel = process(root, rawDir, 4);
+        assertTrue(Arrays.equals(sequential, parallel));
+
+        // the duplicates were dropped, so the first copy had to win
+        NewsRecordReader reader = new NewsRecordReader(new File(root,
+                "1/processed/data/" + DATE + "_rss.data"));
+        int articles = 0;
+        while (reader.next() != null)
+            articles++;
+        reader.close();
+        assertTrue(articles > ITEMS_PER_FEED);
+        assertTrue(articles < FEEDS.length * ITEMS_PER_FEED);
+    }
+
+    /* Processes rawDir with the given threads, returns the rss.data bytes. */
+    private static byte[] process(File root, File rawDir, int threads)
+            throws Exception {
+        File runDir = new File(root, String.valueOf(threads));
+        runDir.mkdir();
+        RssScraper scraper = new YahooRssScraper(Calendar.getInstance(),
+                makeConfig(runDir));
+        scraper.setProcessingThreads(threads);
+        File target = new File(runDir, "processed");
+        scraper.processData(rawDir.getPath() + "/", target.getPath());
+
+        File data = new File(target, "data/" + DATE + "_rss.data");
+        assertTrue(data.length() > 0);
+        // no temporary file is left where the extractor would read it
+        assertEquals(1, data.getParentFile().list().length);
+        assertFalse(new File(target, DATE + "_rss.data.tmp").exists());
+        return readBytes(data);
+    }
+
+    /*
+     * Writes a raw file per feed. Some items repeat the title or the
+     * content of an item in another feed, so which copy is kept depends
+     * on the order the files are merged in.
+     */
+    private static void writeRawFiles(File rawDir) throws IOException {
+        Random random = new Random(5);
+        String[] contents = new String[FEEDS.length * ITEMS_PER_FEED];
+        for (int f = 0; f < FEEDS.length; f++) {
+            StringBuilder sb = new StringBuilder("<rss><channel>\n");
+            for (int i = 0; i < ITEMS_PER_FEED; i++) {
+                int n = f * ITEMS_PER_FEED + i;
+                String title = "Story " + n;
+                contents[n] = sentence(random);
+                if (f > 0 && i % 5 == 0) {
+                    title = "Story " + random.nextInt(f * ITEMS_PER_FEED);
+                } else if (f > 0 && i % 7 == 0) {
+                    contents[n] = contents[random.nextInt(f * ITEMS_PER_FEED)];
+                }
+                sb.append("<item><title>").append(title).append("</title>")
+                        .append("<link>http://news.example.com/").append(n)
+                        .append("</link><pubdate>").append(DATE)
+                        .append("</pubdate><source>AP</source><description>")
+                        .append(contents[n]).append("</description></item>\n");
+            }
+            sb.append("</channel></rss>\n");
+            write(new File(rawDir, DATE + "_" + FEEDS[f] + ".html"),
+                    sb.toString());
+        }
+    }
+
+    private static final String[] WORDS = { "the", "senate", "voted",
+            "on", "a", "plan", "to", "cut", "taxes", "for", "farmers",
+            "after", "storms", "hit", "coast", "officials", "said", "market",
+            "shares", "rose", "team", "won", "its", "third", "game", "in",
+            "row", "city", "council", "approved", "budget", "new", "school" };
+
+    private static String sentence(Random random) {
+        StringBuilder sb = new StringBuilder("Officials");
+        int words = 12 + random.nextInt(12);
+        for (int i = 0; i < words; i++)
+            sb.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+        return sb.append('.').toString();
+    }
+
+    private static Config makeConfig(File runDir) throws Exception {
+        String root = runDir.getPath() + "/";
+        File file = new File(runDir, "config.json");
+        write(file, "{\"root-dir\":\"" + root + "\", "
+                + "\"rss-url\":\"http://localhost/\", \"categories\":[\"US\"], "
+                + "\"extracted_data_suffix\":\"revnews\", "
+                + "\"extracted_data_dir\":\"" + root + "extracted\", "
+                + "\"formatted_extracted_data_dir\":\"formatted/\", "
+                + "\"sentence-minimum-length\":20, "
+                + "\"id-count-file\":\"" + root + "idCount\", "
+                + "\"dedup-file\":\"" + root + "dedup.table\", "
+                + "\"tag\":\"yahoo\"}");
+        return new Config(file.toURI().toURL());
+    }
+
+    private static byte[] readBytes(File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        InputStream in = new FileInputStream(file);
+        try {
+            int read = 0;
+            while (read < bytes.length) {
+                int n = in.read(bytes, read, bytes.length - read);
+                if (n < 0)
+                    break;
+                read += n;
+            }
+        } finally {
+            in.close();
+        }
+        return bytes;
+    }
+
+    private static void write(File file, String text) throws IOException {
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            out.write(text);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static File makeTempDir() throws Exception {
+        File dir = File.createTempFile("scraper", "");
+        dir.delete();
+        dir.mkdir();
+        return dir;
+    }
+}
@@ -0,0 +1,87 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SearchIndexTest {
+
+    @Test
+    public void findsArticlesAndExtractionsByEveryWord() throws Exception {
+        File dir = File.createTempFile("index", "");
+        dir.delete();
+        SearchIndex index = new SearchIndex(dir);
+
+        index.write("2012-06-01", write(
+                article(1, "Apple sells phones", "Shares rose.",
+                        extraction("Apple Inc.", "sells", "phones", "0.9")
+                        + "," + extraction("Apple", "buys", "a firm", "0.25"))
+                + article(2, "Obama in Ohio", "Apple pie was served.",
+                        extraction("Obama", "visits", "Ohio", "0.5"))));
+        index.write("2012-06-02", write(
+                article(3, "Rain", "Rain falls on Apple farms.",
+                        extraction("Rain", "falls on", "apple farms", "0.1"))));
+
+        List<FormattedNewsData> hits = index.searchExtractions("apple", "",
+                null, null, null, 10);
+        assertEquals(2, hits.size());
+        assertEquals("Apple Inc.", hits.get(0).arg1);
+        assertEquals("buys", hits.get(1).relation);
+        assertEquals(Long.valueOf(1), hits.get(1).id);
+        assertEquals("Apple sells phones", hits.get(1).title);
+        assertEquals(0.25, hits.get(1).confidence, 0);
+
+        hits = index.searchExtractions(null, "falls ON", "apple", null, null, 10);
+        assertEquals(1, hits.size());
+        assertEquals("2012-06-02", hits.get(0).date);
+        assertEquals(0, index.searchExtractions("apple", "visits", null,
+                null, null, 10).size());
+        assertEquals(0, index.searchExtractions("", " ", null, null, null,
+                10).size());
+
+        List<SearchIndex.ArticleHit> articles = index.searchArticles("apple",
+                null, null, 10);
+        assertEquals(3, articles.size());
+        assertEquals(Long.valueOf(2), articles.get(1).id);
+        assertEquals(1, index.searchArticles("apple", "2012-06-02",
+                "2012-06-30", 10).size());
+        assertEquals(2, index.searchArticles("apple", null, null, 2).size());
+        assertEquals(0, index.searchArticles("apple pear", null, null,
+                10).size());
+    }
+
+    @Test
+    public void splitsWordsOnAnythingButLettersAndDigits() {
+        assertEquals(Arrays.asList("u", "s", "sells", "f", "16s", "café"),
+                SearchIndex.tokenize("U.S. sells F-16s (café)"));
+        assertTrue(SearchIndex.tokenize(null).isEmpty());
+    }
+
+    private static String article(long id, String title, String content,
+            String extractions) {
+        return "{\"id\":" + id + ", \"title\":\"" + title + "\", \"content\":\""
+                + content + "\", \"category\":\"US\", \"url\":\"http://a/" + id
+                + "\", \"extractions\":[" + extractions + "]}\n";
+    }
+
+    private static String extraction(String arg1, String relation,
+            String arg2, String confidence) {
+        return "{\"sent\":\"s\", \"arg1\":\"" + arg1 + "\", \"relation\":\""
+                + relation + "\", \"arg2\":\"" + arg2
+                + "\", \"confidence\":\"" + confidence + "\"}";
+    }
+
+    private static File write(String content) throws Exception {
+        File file = File.createTempFile("extracted", ".data");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(content.getBytes("UTF-8"));
+        out.close();
+        return file;
+    }
+}
@@ -0,0 +1,63 @@
+package edu.washington.cs.knowitall.newsscraper;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SimHashIndexTest {
+
+    private static final String STORY = "Chicago teachers and the city's "
+            + "school board reached a tentative agreement on Friday that "
+            + "could end a strike that has kept 350,000 students out of "
+            + "class. Union delegates will meet on Sunday to vote on it.";
+
+    @Test
+    public void findsCopiesWithAnotherDatelineOrEnding() {
+        SimHashIndex index = new SimHashIndex(3);
+        index.add(SimHashIndex.fingerprint(STORY));
+
+        assertTrue(index.containsNear(SimHashIndex.fingerprint(
+                "CHICAGO (Reuters) - " + STORY)));
+        assertTrue(index.containsNear(SimHashIndex.fingerprint(
+                "CHICAGO (AP) — " + STORY)));
+        assertTrue(index.containsNear(SimHashIndex.fingerprint(
+                STORY + " ...")));
+        assertFalse(index.containsNear(SimHashIndex.fingerprint(
+                "Apple sold more than two million iPhone 5 handsets in the "
+                + "first 24 hours of pre-orders, double the record set by "
+                + "the iPhone 4S last year.")));
+    }
+
+    @Test
+    public void bandsFindWhatAScanFinds() {
+        Random random = new Random(7);
+        for (int distance = 0; distance <= 8; distance++) {
+            SimHashIndex index = new SimHashIndex(distance);
+            List<Long> added = new ArrayList<Long>();
+            for (int i = 0; i < 2000; i++) {
+                long fingerprint = random.nextLong();
+                index.add(fingerprint);
+                added.add(fingerprint);
+            }
+            assertEquals(2000, index.size());
+
+            for (int i = 0; i < 2000; i++) {
+                // flip a few bits of an added fingerprint, or make a new one
+                long probe = added.get(random.nextInt(added.size()));
+                for (int flips = random.nextInt(12); flips > 0; flips--)
+                    probe ^= 1L << random.nextInt(64);
+                if (i % 4 == 0)
+                    probe = random.nextLong();
+
+                boolean near = false;
+                for (long fingerprint : added)
+                    near |= Long.bitCount(fingerprint ^ probe) <= distance;
+                assertEquals(near, index.containsNear(probe));
+            }
+        }
+    }
+}
@@ -1,4 +1,5 @@
 <?php
+include_once 'news_data.php';
 
 define('META_DATA_DIR', 'data/meta_data/');
 define('MAX_CONTENT_SIZE', 255);
@@ -121,8 +122,7 @@ function scrape_keywords($key_fields, $paragraph){
 
 //load the given json file into content
 function load_meta_data_json($file_name){
-	$meta_data_file = file_get_contents($file_name);
-	return json_decode($meta_data_file, true);	
+	return load_news_data($file_name);
 }
 
 //return the array of garbage words
@@ -0,0 +1,29 @@
+<?php
+
+//load the articles of an rss.data or extracted data file as an array,
+//whichever "data-format" wrote it. ndjson files are decoded a line at a
+//time, keyed by the id on each line; json files are decoded as a whole.
+function load_news_data($file_name){
+	$fh = fopen($file_name, 'r');
+	if(!$fh) return array();
+
+	$line = fgets($fh);
+	if($line === false || !preg_match('/^\s*\{\s*"id"\s*:/', $line)){
+		fclose($fh);
+		return json_decode(file_get_contents($file_name), true);
+	}
+
+	$articles = array();
+	for(; $line !== false; $line = fgets($fh)){
+		$entry = json_decode($line, true);
+		//blank lines, and a last line cut off by a crash
+		if(!is_array($entry)) continue;
+		$id = $entry['id'];
+		unset($entry['id']);
+		$articles[$id] = $entry;
+	}
+	fclose($fh);
+	return $articles;
+}
+
+?>
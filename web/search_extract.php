@@ -1,4 +1,5 @@
 <?php
+include_once 'news_data.php';
 
 define (EXTRACTED_DATA_DIR, 'data/extracted_data/');
 define (MAX_CONTENT_SIZE, 255);
@@ -115,9 +116,7 @@ function create_news_info($entry){
 
 //load the given file and return the content of the file.
 function load_json_data($file_name){
-	
-	$file = file_get_contents($file_name);
-	return	json_decode($file, true);
+	return load_news_data($file_name);
 }
 
 
@@ -1,4 +1,5 @@
 <?php
+include_once 'news_data.php';
 
 define (SOURCE_FILE, 'data/meta_data/2012-05-10_yahoo_rss.data');
 define (TODAY_FILE, 'data/today_news/today_news.data');
@@ -48,10 +49,7 @@ function generate_today_news(){
 
 //get the file content, and return the content in json decoded format
 function get_file_json(){
-	
-	$meta_data_file = file_get_contents(SOURCE_FILE);
-	return json_decode($meta_data_file, true);	
-		
+	return load_news_data(SOURCE_FILE);
 }
 
 ?>